@@ -1,17 +1,36 @@
 package com.nitin.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    // Normalized query text -> unit-length query embedding
+    public static final String QUERY_EMBEDDINGS = "queryEmbeddings";
+
+    @Value("${rag.cache.query-embeddings.max-size:10000}")
+    private long queryEmbeddingsMaxSize;
+
+    @Value("${rag.cache.query-embeddings.ttl-minutes:60}")
+    private long queryEmbeddingsTtlMinutes;
+
     @Bean
     public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("documentCount", "healthStatus");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("documentCount", "healthStatus");
+        cacheManager.registerCustomCache(QUERY_EMBEDDINGS, Caffeine.newBuilder()
+                .maximumSize(queryEmbeddingsMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(queryEmbeddingsTtlMinutes))
+                .recordStats()
+                .build());
+        return cacheManager;
     }
 }
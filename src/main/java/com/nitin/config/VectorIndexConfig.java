@@ -0,0 +1,123 @@
+package com.nitin.config;
+
+import com.nitin.index.EmbeddingCodec;
+import com.nitin.index.FlatVectorIndex;
+import com.nitin.index.HnswVectorIndex;
+import com.nitin.index.IvfVectorIndex;
+import com.nitin.index.MappedVectorStore;
+import com.nitin.index.QuantizedVectorIndex;
+import com.nitin.index.VectorIndex;
+import com.nitin.index.VectorMath;
+import com.nitin.repository.DocumentRepository;
+import com.nitin.repository.EmbeddingView;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the retrieval engine behind {@code findSimilarDocuments} via {@code rag.retrieval.engine}.
+ */
+@Configuration
+public class VectorIndexConfig {
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexConfig.class);
+
+    @PostConstruct
+    public void logSimilarityKernel() {
+        if (VectorMath.isSimdEnabled()) {
+            logger.info("Using SIMD similarity kernel ({} float lanes)", VectorMath.lanes());
+        } else {
+            logger.info("jdk.incubator.vector not enabled; using scalar similarity kernel");
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rag.retrieval.engine", havingValue = "flat", matchIfMissing = true)
+    public VectorIndex flatVectorIndex(@Value("${rag.retrieval.parallel.pool-size:0}") int poolSize,
+                                       @Value("${rag.retrieval.parallel.threshold:50000}") int parallelThreshold) {
+        int parallelism = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        if (parallelism <= 1) {
+            logger.info("Using exact flat vector index for retrieval");
+            return new FlatVectorIndex();
+        }
+        logger.info("Using exact flat vector index for retrieval ({} scoring threads above {} vectors)",
+                parallelism, parallelThreshold);
+        return new FlatVectorIndex(retrievalWorkers(parallelism), parallelism, parallelThreshold);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rag.retrieval.engine", havingValue = "hnsw")
+    public VectorIndex hnswVectorIndex(@Value("${rag.retrieval.hnsw.m:16}") int m,
+                                       @Value("${rag.retrieval.hnsw.ef-construction:200}") int efConstruction,
+                                       @Value("${rag.retrieval.hnsw.ef-search:64}") int efSearch) {
+        logger.info("Using HNSW vector index for retrieval (M={}, efConstruction={}, efSearch={})",
+                m, efConstruction, efSearch);
+        return new HnswVectorIndex(m, efConstruction, efSearch);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rag.retrieval.engine", havingValue = "quantized")
+    public VectorIndex quantizedVectorIndex(@Value("${rag.retrieval.quantized.mode:int8}") String mode,
+                                            @Value("${rag.retrieval.quantized.rerank-depth:200}") int rerankDepth,
+                                            @Value("${rag.retrieval.quantized.rerank-source:fp16}") String rerankSource,
+                                            DocumentRepository documentRepository) {
+        QuantizedVectorIndex.Quantization quantization = QuantizedVectorIndex.Quantization.valueOf(mode.trim().toUpperCase());
+        logger.info("Using {} quantized vector index for retrieval (rerank depth {}, rerank vectors from {})",
+                quantization, rerankDepth, rerankSource);
+        if (!"database".equalsIgnoreCase(rerankSource.trim())) {
+            return new QuantizedVectorIndex(quantization, rerankDepth);
+        }
+        // Fallback for the smallest heap: only the codes stay resident, each search reads its shortlist back
+        return new QuantizedVectorIndex(quantization, rerankDepth, ids -> {
+            Map<Long, float[]> vectors = new HashMap<>();
+            for (EmbeddingView row : documentRepository.findEmbeddingsByIdIn(ids)) {
+                vectors.put(row.getId(), EmbeddingCodec.deserialize(row.getEmbedding()));
+            }
+            return vectors;
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rag.retrieval.engine", havingValue = "ivf")
+    public VectorIndex ivfVectorIndex(@Value("${rag.retrieval.ivf.lists:0}") int lists,
+                                      @Value("${rag.retrieval.ivf.nprobe:8}") int nprobe,
+                                      @Value("${rag.retrieval.similarity-threshold:0.0}") float similarityThreshold,
+                                      @Value("${rag.retrieval.ivf.train-min-size:10000}") int trainMinSize,
+                                      @Value("${rag.retrieval.ivf.retrain-growth:2.0}") double retrainGrowth) {
+        logger.info("Using IVF vector index for retrieval (lists={}, nprobe={}, early exit at similarity {})",
+                lists > 0 ? lists : "sqrt(n)", nprobe, similarityThreshold);
+        return new IvfVectorIndex(lists, nprobe, similarityThreshold, trainMinSize, retrainGrowth);
+    }
+
+    // Closed (and flushed) by Spring on shutdown through the inferred close() destroy method
+    @Bean
+    @ConditionalOnProperty(name = "rag.retrieval.engine", havingValue = "mmap")
+    public VectorIndex mappedVectorStore(@Value("${rag.vector-store.directory:./data/vectors}") String directory,
+                                         @Value("${rag.vector-store.segment-capacity:65536}") int segmentCapacity) throws IOException {
+        Path path = Path.of(directory).toAbsolutePath();
+        MappedVectorStore store = new MappedVectorStore(path, segmentCapacity);
+        logger.info("Using memory-mapped vector store at {} ({} vectors on disk)", path, store.size());
+        return store;
+    }
+
+    // Dedicated daemon pool so scoring shards never queue behind request or async-task threads
+    private ExecutorService retrievalWorkers(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "rag-retrieval-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -1,38 +1,203 @@
 package com.nitin.controller;
 
+import com.nitin.dto.BatchQueryRequest;
+import com.nitin.dto.BatchQueryResult;
 import com.nitin.dto.IndexRequest;
 import com.nitin.dto.QueryRequest;
+import com.nitin.dto.SourceChunk;
+import com.nitin.service.DirectoryWatchService;
 import com.nitin.service.DocumentService;
+import com.nitin.service.EmbeddingRuntime;
+import com.nitin.service.ExtractedTextCache;
+import com.nitin.service.IndexingJob;
+import com.nitin.service.IndexingJobService;
+import com.nitin.service.LlmAdmissionScheduler;
+import com.nitin.service.NearDuplicateService;
 import com.nitin.service.RagService;
+import com.nitin.service.SemanticAnswerCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/rag")
 @CrossOrigin(origins = "*") // Enable CORS for web interface
 public class RagController {
+    private static final Logger logger = LoggerFactory.getLogger(RagController.class);
+
     @Autowired
     private RagService ragService;
 
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    private DirectoryWatchService directoryWatchService;
+
+    @Autowired
+    private IndexingJobService indexingJobService;
+
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+
+    @Autowired
+    private EmbeddingRuntime embeddingRuntime;
+
+    @Autowired
+    private ExtractedTextCache extractedTextCache;
+
+    @Autowired
+    private LlmAdmissionScheduler admissionScheduler;
+
+    @Value("${rag.query.batch.max-size:256}")
+    private int maxBatchSize;
+
+    @Value("${rag.query.batch.max-limit:20}")
+    private int maxBatchLimit;
+
+    @Value("${rag.query.stream.timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
     @PostMapping("/query")
     public ResponseEntity<String> query(@RequestBody QueryRequest request) {
         try {
             // Handle both query & question field names
             String response = ragService.query(request.getQuery());
             return ResponseEntity.ok(response);
+        } catch (LlmAdmissionScheduler.RejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error Processing query :" +e.getMessage());
         }
     }
 
+    /**
+     * Streams the answer as server-sent events: {@code sources} (the retrieved chunks), one
+     * {@code token} per generated token, then {@code done} with the cleaned answer or
+     * {@code error}. Generation stops when the client disconnects. Answers 429 up front when the
+     * LLM wait queue is already full.
+     */
+    @PostMapping(value = "/query-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> queryStream(@RequestBody QueryRequest request) {
+        if (admissionScheduler.isSaturated()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        String question = request.getQuery();
+        if (question == null || question.trim().isEmpty()) {
+            sendFinalEvent(emitter, "error", Map.of("message", "Please provide a valid question."));
+            return ResponseEntity.ok(emitter);
+        }
+
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        try {
+            taskExecutor.execute(() -> streamAnswer(emitter, question, closed));
+        } catch (TaskRejectedException e) {
+            sendFinalEvent(emitter, "error", Map.of("message", "Server is busy, please try again."));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void streamAnswer(SseEmitter emitter, String question, AtomicBoolean closed) {
+        try {
+            String answer = ragService.streamQuery(question, new RagService.AnswerStream() {
+                @Override
+                public void sources(List<SourceChunk> sources) {
+                    sendEvent(emitter, "sources", sources, closed);
+                }
+
+                @Override
+                public void token(String token) {
+                    sendEvent(emitter, "token", Map.of("token", token), closed);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return closed.get();
+                }
+            });
+            if (answer != null) {
+                sendFinalEvent(emitter, "done", Map.of("answer", answer));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } catch (LlmAdmissionScheduler.RejectedException e) {
+            // The stream is already open, so a late rejection can only be reported as an event
+            sendFinalEvent(emitter, "error", Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            if (!closed.get()) {
+                logger.error("Error streaming answer for query: {}", question, e);
+                sendFinalEvent(emitter, "error", Map.of("message", "Error processing query: " + e.getMessage()));
+            }
+        }
+    }
+
+    // A failed send means the client went away; the flag stops generation at the next token
+    private static void sendEvent(SseEmitter emitter, String name, Object data, AtomicBoolean closed) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            closed.set(true);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void sendFinalEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    // Many questions in one embedding call and one pass over the vector index
+    @PostMapping("/query-batch")
+    public ResponseEntity<?> queryBatch(@RequestBody BatchQueryRequest request) {
+        List<String> queries = request.getQueries();
+        if (queries == null || queries.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one query is required");
+        }
+        if (queries.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body("Batch size " + queries.size() + " exceeds the maximum of " + maxBatchSize);
+        }
+        int limit = request.getLimit() != null ? Math.max(1, Math.min(request.getLimit(), maxBatchLimit)) : 3;
+        try {
+            List<BatchQueryResult> results = ragService.queryBatch(queries, limit, request.isGenerateAnswers());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error Processing batch query :" + e.getMessage());
+        }
+    }
+
     @PostMapping("/index-file")
     public ResponseEntity<String> indexFiles(@RequestParam("files")MultipartFile[] files){
         try {
@@ -62,6 +227,40 @@ public class RagController {
             return ResponseEntity.internalServerError().body("Error indexing directory: " + e.getMessage());
         }
     }
+    // Start indexing a directory in the background; returns the job id immediately
+    @PostMapping("/index-jobs")
+    public ResponseEntity<?> submitIndexJob(@RequestBody Map<String, String> request) {
+        String directoryPath = request.get("directoryPath");
+        if (directoryPath == null || directoryPath.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("Directory path is required");
+        }
+        try {
+            IndexingJob job = indexingJobService.submit(directoryPath);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.getStatus());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/index-jobs")
+    public ResponseEntity<List<Map<String, Object>>> listIndexJobs() {
+        return ResponseEntity.ok(indexingJobService.list().stream().map(IndexingJob::getStatus).toList());
+    }
+
+    @GetMapping("/index-jobs/{id}")
+    public ResponseEntity<Map<String, Object>> indexJobStatus(@PathVariable String id) {
+        IndexingJob job = indexingJobService.get(id);
+        return job != null ? ResponseEntity.ok(job.getStatus()) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/index-jobs/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelIndexJob(@PathVariable String id) {
+        IndexingJob job = indexingJobService.cancel(id);
+        return job != null ? ResponseEntity.ok(job.getStatus()) : ResponseEntity.notFound().build();
+    }
+
     // Clear all the indexed files
     @PostMapping("/clear")
     public ResponseEntity<String> clearIndex() {
@@ -72,4 +271,20 @@ public class RagController {
             return ResponseEntity.internalServerError().body("Error clearing index : "+e.getMessage());
         }
     }
+
+    // Runtime statistics for caches and retrieval
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documentCount", documentService.getDocumentCount());
+        stats.put("queryEmbeddingCache", documentService.getQueryEmbeddingCacheStats());
+        stats.put("answerCache", semanticAnswerCache.getStats());
+        stats.put("embedding", embeddingRuntime.getStats());
+        stats.put("llmAdmission", admissionScheduler.getStats());
+        stats.put("ingestion", documentService.getIngestionStats());
+        stats.put("extractedTextCache", extractedTextCache.getStats());
+        stats.put("nearDuplicates", nearDuplicateService.getStats());
+        stats.put("directoryWatch", directoryWatchService.getStats());
+        return ResponseEntity.ok(stats);
+    }
 }
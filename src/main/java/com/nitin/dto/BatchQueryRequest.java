@@ -0,0 +1,25 @@
+package com.nitin.dto;
+
+import java.util.List;
+
+public class BatchQueryRequest {
+    private List<String> queries;
+    private Integer limit;
+    // Retrieval-only batches (evaluation, pre-warming) can skip generation
+    private boolean generateAnswers = true;
+
+    public BatchQueryRequest() {}
+
+    public BatchQueryRequest(List<String> queries) {
+        this.queries = queries;
+    }
+
+    public List<String> getQueries() { return queries; }
+    public void setQueries(List<String> queries) { this.queries = queries; }
+
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+
+    public boolean isGenerateAnswers() { return generateAnswers; }
+    public void setGenerateAnswers(boolean generateAnswers) { this.generateAnswers = generateAnswers; }
+}
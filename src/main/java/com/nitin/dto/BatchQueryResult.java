@@ -0,0 +1,26 @@
+package com.nitin.dto;
+
+import java.util.List;
+
+public class BatchQueryResult {
+    private String query;
+    private List<SourceChunk> sources;
+    private String answer;
+
+    public BatchQueryResult() {}
+
+    public BatchQueryResult(String query, List<SourceChunk> sources, String answer) {
+        this.query = query;
+        this.sources = sources;
+        this.answer = answer;
+    }
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public List<SourceChunk> getSources() { return sources; }
+    public void setSources(List<SourceChunk> sources) { this.sources = sources; }
+
+    public String getAnswer() { return answer; }
+    public void setAnswer(String answer) { this.answer = answer; }
+}
@@ -0,0 +1,24 @@
+package com.nitin.dto;
+
+public class SourceChunk {
+    private Long id;
+    private String fileName;
+    private Integer chunkIndex;
+
+    public SourceChunk() {}
+
+    public SourceChunk(Long id, String fileName, Integer chunkIndex) {
+        this.id = id;
+        this.fileName = fileName;
+        this.chunkIndex = chunkIndex;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Integer getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
+}
@@ -8,11 +8,19 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documents", indexes = {@Index(name = "idx_documents_created", columnList = "created_at")})
+@Table(name = "documents", indexes = {
+        @Index(name = "idx_documents_created", columnList = "created_at"),
+        @Index(name = "idx_documents_source_path", columnList = "source_path"),
+        @Index(name = "idx_documents_duplicate_of", columnList = "duplicate_of")})
 public class Document {
 
+    // Pooled sequence ids keep Hibernate's JDBC batching on; IDENTITY forces one INSERT per row
+    public static final String ID_SEQUENCE = "documents_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(length = 2000)
@@ -24,6 +32,18 @@ public class Document {
     @Column(name = "chunk_index")
     private Integer chunkIndex;
 
+    // Full path of the indexed file, "upload:<name>" for uploads; null for chunks stored before either existed
+    @Column(name = "source_path", length = 1024)
+    private String sourcePath;
+
+    // SimHash of the content, used to spot near-duplicate chunks at ingest
+    @Column(name = "fingerprint")
+    private Long fingerprint;
+
+    // Set on a near-duplicate that was stored without an embedding; points at the chunk that carries it
+    @Column(name = "duplicate_of")
+    private Long duplicateOf;
+
     @Lob
     @Basic(fetch = FetchType.LAZY)
     @Column(name = "embedding", columnDefinition = "LONGBLOB")
@@ -66,6 +86,15 @@ public class Document {
     public Integer getChunkIndex() { return chunkIndex; }
     public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
 
+    public String getSourcePath() { return sourcePath; }
+    public void setSourcePath(String sourcePath) { this.sourcePath = sourcePath; }
+
+    public Long getFingerprint() { return fingerprint; }
+    public void setFingerprint(Long fingerprint) { this.fingerprint = fingerprint; }
+
+    public Long getDuplicateOf() { return duplicateOf; }
+    public void setDuplicateOf(Long duplicateOf) { this.duplicateOf = duplicateOf; }
+
     public byte[] getEmbedding() { return embedding;}
     public void setEmbedding(byte[] embedding) { this.embedding = embedding; }
 }
@@ -0,0 +1,60 @@
+package com.nitin.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Manifest row for a file indexed from a directory: its full path plus the size, modification
+ * time and content hash it had when its chunks were last written.
+ */
+@Entity
+@Table(name = "indexed_files", indexes = {@Index(name = "idx_indexed_files_path", columnList = "path", unique = true)})
+public class IndexedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "path", length = 1024, nullable = false)
+    private String path;
+
+    @Column(name = "size_bytes")
+    private long size;
+
+    // Epoch milliseconds
+    @Column(name = "last_modified")
+    private long lastModified;
+
+    // Hex SHA-256 of the file bytes
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "indexed_at")
+    private LocalDateTime indexedAt;
+
+    public IndexedFile() {
+    }
+
+    public IndexedFile(String path) {
+        this.path = path;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public LocalDateTime getIndexedAt() { return indexedAt; }
+    public void setIndexedAt(LocalDateTime indexedAt) { this.indexedAt = indexedAt; }
+}
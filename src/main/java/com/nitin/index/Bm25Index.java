@@ -0,0 +1,286 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index with Okapi BM25 scoring, used for exact-term retrieval (error codes,
+ * part numbers, names) that embeddings tend to blur.
+ * <p>
+ * Documents get dense ordinals in insertion order, so each term's postings list is an
+ * append-only int array of {@code (ordinal delta, term frequency)} pairs. Removed documents are
+ * tombstoned and skipped; once tombstones outnumber live documents the postings are rewritten
+ * without them.
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "will", "with");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    private long[] idByOrdinal = new long[0];
+    private int[] lengthByOrdinal = new int[0];
+    private BitSet deleted = new BitSet();
+    private int ordinalCount;
+    private int liveCount;
+    private long liveLength;
+
+    public void add(long id, String text) {
+        List<String> tokens = tokenize(text);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinalById.remove(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+
+            int ordinal = ordinalCount++;
+            ensureCapacity(ordinalCount);
+            idByOrdinal[ordinal] = id;
+            lengthByOrdinal[ordinal] = tokens.size();
+            ordinalById.put(id, ordinal);
+            liveCount++;
+            liveLength += tokens.size();
+
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postingsByTerm.computeIfAbsent(entry.getKey(), term -> new Postings()).append(ordinal, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                Integer ordinal = ordinalById.remove(id);
+                if (ordinal != null) {
+                    markDeleted(ordinal);
+                }
+            }
+            if (ordinalCount - liveCount > liveCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postingsByTerm.clear();
+            ordinalById.clear();
+            idByOrdinal = new long[0];
+            lengthByOrdinal = new int[0];
+            deleted = new BitSet();
+            ordinalCount = 0;
+            liveCount = 0;
+            liveLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code k} documents ordered by descending BM25 score for the query terms.
+     */
+    public List<SearchHit> search(String query, int k) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || terms.isEmpty() || k <= 0) {
+                return List.of();
+            }
+
+            float averageLength = (float) liveLength / liveCount;
+            Accumulator accumulator = accumulators.get();
+            accumulator.reset(ordinalCount);
+
+            for (String term : terms) {
+                Postings postings = postingsByTerm.get(term);
+                if (postings == null) {
+                    continue;
+                }
+                // docFrequency still counts tombstones until compaction; keep idf positive regardless
+                float idf = Math.max(1e-6f, (float) Math.log(1 + (liveCount - postings.docFrequency + 0.5) / (postings.docFrequency + 0.5)));
+                int ordinal = 0;
+                for (int i = 0; i < postings.size; i += 2) {
+                    ordinal += postings.data[i];
+                    if (deleted.get(ordinal)) {
+                        continue;
+                    }
+                    int tf = postings.data[i + 1];
+                    float norm = K1 * (1 - B + B * lengthByOrdinal[ordinal] / averageLength);
+                    accumulator.add(ordinal, idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            TopKCollector topK = TopKCollector.forCurrentThread(k);
+            for (int i = 0; i < accumulator.touchedCount; i++) {
+                int ordinal = accumulator.touched[i];
+                topK.offer(idByOrdinal[ordinal], accumulator.scores[ordinal]);
+            }
+            return topK.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cases and splits on anything that is not a letter or digit, dropping common stop words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void markDeleted(int ordinal) {
+        if (!deleted.get(ordinal)) {
+            deleted.set(ordinal);
+            liveCount--;
+            liveLength -= lengthByOrdinal[ordinal];
+        }
+    }
+
+    // Renumber live documents densely and rewrite every postings list without the tombstones
+    private void compact() {
+        int[] remap = new int[ordinalCount];
+        int next = 0;
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            if (deleted.get(ordinal)) {
+                remap[ordinal] = -1;
+            } else {
+                remap[ordinal] = next;
+                idByOrdinal[next] = idByOrdinal[ordinal];
+                lengthByOrdinal[next] = lengthByOrdinal[ordinal];
+                ordinalById.put(idByOrdinal[next], next);
+                next++;
+            }
+        }
+
+        postingsByTerm.values().removeIf(postings -> postings.rewrite(remap));
+        ordinalCount = next;
+        deleted = new BitSet();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= idByOrdinal.length) {
+            return;
+        }
+        int newCapacity = Math.max(1024, idByOrdinal.length * 2);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        idByOrdinal = Arrays.copyOf(idByOrdinal, newCapacity);
+        lengthByOrdinal = Arrays.copyOf(lengthByOrdinal, newCapacity);
+    }
+
+    private static final class Postings {
+        int[] data = new int[4];
+        int size;
+        int lastOrdinal;
+        int docFrequency;
+
+        void append(int ordinal, int termFrequency) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = ordinal - lastOrdinal;
+            data[size++] = termFrequency;
+            lastOrdinal = ordinal;
+            docFrequency++;
+        }
+
+        // Returns true when no live documents remain for the term
+        boolean rewrite(int[] remap) {
+            int[] old = data;
+            int oldSize = size;
+            data = new int[Math.max(4, oldSize)];
+            size = 0;
+            lastOrdinal = 0;
+            docFrequency = 0;
+
+            int ordinal = 0;
+            for (int i = 0; i < oldSize; i += 2) {
+                ordinal += old[i];
+                if (remap[ordinal] >= 0) {
+                    append(remap[ordinal], old[i + 1]);
+                }
+            }
+            if (size < data.length / 2) {
+                data = Arrays.copyOf(data, Math.max(4, size));
+            }
+            return docFrequency == 0;
+        }
+    }
+
+    /**
+     * Sparse score accumulator reused per thread: only ordinals touched by the query are reset.
+     */
+    private static final class Accumulator {
+        float[] scores = new float[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void reset(int ordinals) {
+            if (scores.length < ordinals) {
+                scores = new float[ordinals];
+                touched = new int[ordinals];
+            } else {
+                for (int i = 0; i < touchedCount; i++) {
+                    scores[touched[i]] = 0f;
+                }
+            }
+            touchedCount = 0;
+        }
+
+        void add(int ordinal, float score) {
+            if (scores[ordinal] == 0f) {
+                touched[touchedCount++] = ordinal;
+            }
+            scores[ordinal] += score;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nitin.index;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts embedding vectors to and from the byte layout stored in the {@code embedding} column.
+ */
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] serialize(float[] vector) {
+        if (vector == null) {
+            throw new IllegalArgumentException("Embedding or vector cannot be null");
+        }
+        if (vector.length == 0) {
+            throw new IllegalArgumentException("Embedding vector cannot be empty");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * 4);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    public static float[] deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Embedding bytes cannot be null or empty");
+        }
+        if (bytes.length % 4 != 0) {
+            throw new IllegalArgumentException("Invalid embedding bytes length");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        float[] vector = new float[bytes.length / 4];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = buffer.getFloat();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,289 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact nearest-neighbour index that keeps every embedding resident in one contiguous
+ * row-major float matrix, with a parallel array of document ids. Rows are stored at unit
+ * length so each comparison is a single dot product.
+ * <p>
+ * Removal swaps the last row into the freed slot, so the matrix never has holes.
+ * Reads run concurrently; writes take an exclusive lock.
+ * <p>
+ * When constructed with a worker pool, searches over at least {@code parallelThreshold} rows are
+ * split into one contiguous shard per worker, each keeping its own top-k, and the shard results
+ * are merged on the calling thread. Smaller indexes stay on the single-threaded path.
+ * <p>
+ * {@link #searchBatch(float[][], int)} walks the matrix in blocks of {@value #ROW_BLOCK} rows and
+ * scores every query against a block while it is still in cache, so a batch of N queries costs
+ * one pass over memory instead of N.
+ */
+public class FlatVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // 128 rows of 384 floats is 192KB, small enough to stay in L2 while every query scores it
+    private static final int ROW_BLOCK = 128;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    private int dimension = -1;
+    private float[] vectors = new float[0];
+    private long[] ids = new long[0];
+    private int size;
+
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final int parallelThreshold;
+
+    public FlatVectorIndex() {
+        this(null, 1, Integer.MAX_VALUE);
+    }
+
+    public FlatVectorIndex(ExecutorService workers, int parallelism, int parallelThreshold) {
+        this.workers = workers;
+        this.parallelism = Math.max(parallelism, 1);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == -1) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        dimension + " vs " + vector.length);
+            }
+
+            Integer existing = rowById.get(id);
+            int row = existing != null ? existing : size;
+            if (existing == null) {
+                ensureCapacity(size + 1);
+                ids[row] = id;
+                rowById.put(id, row);
+                size++;
+            }
+            System.arraycopy(VectorMath.normalize(vector), 0, vectors, row * dimension, dimension);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<Long> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : idsToRemove) {
+                Integer row = rowById.remove(id);
+                if (row == null) {
+                    continue;
+                }
+                int last = size - 1;
+                if (row != last) {
+                    ids[row] = ids[last];
+                    System.arraycopy(vectors, last * dimension, vectors, row * dimension, dimension);
+                    rowById.put(ids[row], row);
+                }
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowById.clear();
+            vectors = new float[0];
+            ids = new long[0];
+            size = 0;
+            dimension = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (size == 0 || k <= 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        query.length + " vs " + dimension);
+            }
+
+            float[] q = VectorMath.normalize(query);
+            TopKCollector topK = TopKCollector.forCurrentThread(k);
+            if (workers != null && parallelism > 1 && size >= parallelThreshold) {
+                scoreInParallel(q, topK);
+            } else {
+                scoreRows(q, 0, size, topK);
+            }
+            return topK.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<List<SearchHit>> searchBatch(float[][] queries, int k) {
+        lock.readLock().lock();
+        try {
+            List<List<SearchHit>> results = new ArrayList<>(queries.length);
+            if (size == 0 || k <= 0) {
+                for (int i = 0; i < queries.length; i++) {
+                    results.add(List.of());
+                }
+                return results;
+            }
+
+            float[][] normalized = new float[queries.length][];
+            for (int i = 0; i < queries.length; i++) {
+                if (queries[i].length != dimension) {
+                    throw new IllegalArgumentException("Vector dimensions don't match: " +
+                            queries[i].length + " vs " + dimension);
+                }
+                normalized[i] = VectorMath.normalize(queries[i]);
+            }
+
+            TopKCollector[] topKs = newCollectors(queries.length, k);
+            if (workers != null && parallelism > 1 && size >= parallelThreshold) {
+                scoreBatchInParallel(normalized, topKs);
+            } else {
+                scoreBlocks(normalized, 0, size, topKs);
+            }
+            for (TopKCollector topK : topKs) {
+                results.add(topK.toHits());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scoreRows(float[] query, int from, int to, TopKCollector topK) {
+        for (int row = from; row < to; row++) {
+            topK.offer(ids[row], VectorMath.dot(query, 0, vectors, row * dimension, dimension));
+        }
+    }
+
+    // Called with the read lock held, so the matrix cannot change while the shards run
+    private void scoreInParallel(float[] query, TopKCollector topK) {
+        int k = topK.capacity();
+        int shardSize = (size + parallelism - 1) / parallelism;
+        List<Callable<TopKCollector>> shards = new ArrayList<>(parallelism);
+        for (int from = 0; from < size; from += shardSize) {
+            int start = from;
+            int end = Math.min(from + shardSize, size);
+            shards.add(() -> {
+                // Not the thread-local collector: the caller is still using its own
+                TopKCollector shardTopK = new TopKCollector(k);
+                scoreRows(query, start, end, shardTopK);
+                return shardTopK;
+            });
+        }
+
+        try {
+            for (Future<TopKCollector> future : workers.invokeAll(shards)) {
+                TopKCollector shardTopK = future.get();
+                for (int i = 0; i < shardTopK.size(); i++) {
+                    topK.offer(shardTopK.id(i), shardTopK.score(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring vector shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to score vector shard", e.getCause());
+        }
+    }
+
+    // Query-major inside each row block: the block is fetched from memory once, then hit in cache
+    private void scoreBlocks(float[][] queries, int from, int to, TopKCollector[] topKs) {
+        for (int blockStart = from; blockStart < to; blockStart += ROW_BLOCK) {
+            int blockEnd = Math.min(blockStart + ROW_BLOCK, to);
+            for (int q = 0; q < queries.length; q++) {
+                scoreRows(queries[q], blockStart, blockEnd, topKs[q]);
+            }
+        }
+    }
+
+    private void scoreBatchInParallel(float[][] queries, TopKCollector[] topKs) {
+        int k = topKs[0].capacity();
+        int shardSize = (size + parallelism - 1) / parallelism;
+        List<Callable<TopKCollector[]>> shards = new ArrayList<>(parallelism);
+        for (int from = 0; from < size; from += shardSize) {
+            int start = from;
+            int end = Math.min(from + shardSize, size);
+            shards.add(() -> {
+                TopKCollector[] shardTopKs = newCollectors(queries.length, k);
+                scoreBlocks(queries, start, end, shardTopKs);
+                return shardTopKs;
+            });
+        }
+
+        try {
+            for (Future<TopKCollector[]> future : workers.invokeAll(shards)) {
+                TopKCollector[] shardTopKs = future.get();
+                for (int q = 0; q < queries.length; q++) {
+                    for (int i = 0; i < shardTopKs[q].size(); i++) {
+                        topKs[q].offer(shardTopKs[q].id(i), shardTopKs[q].score(i));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring vector shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to score vector shard", e.getCause());
+        }
+    }
+
+    private static TopKCollector[] newCollectors(int count, int k) {
+        TopKCollector[] collectors = new TopKCollector[count];
+        for (int i = 0; i < count; i++) {
+            collectors[i] = new TopKCollector(k);
+        }
+        return collectors;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+    }
+}
@@ -0,0 +1,569 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index based on a Hierarchical Navigable Small World graph
+ * (Malkov &amp; Yashunin).
+ * <p>
+ * Vectors are stored normalized so that the graph is navigated with plain dot products.
+ * Removed ids are tombstoned: they keep routing queries through the graph but never enter the
+ * result list, so a search still returns up to {@code k} live hits. Once more than half of the
+ * nodes are tombstones, a new graph is built from the live vectors on a background thread and
+ * swapped in; searches keep using the old graph until then.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ThreadLocal<SearchScratch> scratch;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rag-hnsw-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int dimension = -1;
+    private float[] vectors = new float[0];
+    private long[] ids = new long[0];
+    // neighbours[node][level] = {count, n1, n2, ...}
+    private int[][][] neighbours = new int[0][][];
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int nodeCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    // Bumped by clear() so a compaction started before it is discarded
+    private long generation;
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2");
+        }
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.scratch = ThreadLocal.withInitial(() -> new SearchScratch().ensureNeighbourCapacity(maxM0));
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == -1) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        dimension + " vs " + vector.length);
+            }
+
+            Integer existing = nodeById.get(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(id, VectorMath.normalize(vector));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<Long> idsToRemove) {
+        boolean due;
+        lock.writeLock().lock();
+        try {
+            for (Long id : idsToRemove) {
+                Integer node = nodeById.remove(id);
+                if (node != null) {
+                    markDeleted(node);
+                }
+            }
+            due = deletedCount > 0 && deletedCount * 2 > nodeCount;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (due && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+            dimension = -1;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint == -1 || k <= 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        query.length + " vs " + dimension);
+            }
+
+            float[] q = VectorMath.normalize(query);
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(q, 0, ep, level);
+            }
+
+            TopKCollector nearest = searchLayer(q, 0, ep, Math.max(efSearch, k), 0, true);
+            List<SearchHit> hits = new ArrayList<>(Math.min(k, nearest.size()));
+            for (int i = 0; i < nearest.size() && hits.size() < k; i++) {
+                hits.add(new SearchHit(ids[(int) nearest.id(i)], nearest.score(i)));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, float[] vector) {
+        int level = randomLevel();
+        int node = nodeCount++;
+        ensureCapacity(nodeCount);
+
+        ids[node] = id;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        neighbours[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            neighbours[node][l] = new int[maxNeighbours(l) + 1];
+        }
+        nodeById.put(id, node);
+
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int offset = node * dimension;
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(vectors, offset, ep, l);
+        }
+
+        SearchScratch scratch = this.scratch.get();
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            TopKCollector candidates = searchLayer(vectors, offset, ep, efConstruction, l, false);
+            ep = (int) candidates.id(0);
+            int[] own = neighbours[node][l];
+            int count = selectNeighbours(candidates, maxNeighbours(l), scratch.selected, scratch);
+            for (int i = 0; i < count; i++) {
+                int neighbour = scratch.selected[i];
+                own[++own[0]] = neighbour;
+                connect(neighbour, node, l, scratch);
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    // Adds node to neighbour's list at the given level, pruning it with the heuristic when full
+    private void connect(int neighbour, int node, int level, SearchScratch scratch) {
+        int[] list = neighbours[neighbour][level];
+        int capacity = list.length - 1;
+        if (list[0] < capacity) {
+            list[++list[0]] = node;
+            return;
+        }
+
+        int offset = neighbour * dimension;
+        TopKCollector candidates = scratch.pruneCandidates;
+        candidates.reset(capacity + 1);
+        for (int i = 1; i <= list[0]; i++) {
+            candidates.offer(list[i], similarity(vectors, offset, list[i]));
+        }
+        candidates.offer(node, similarity(vectors, offset, node));
+        candidates.sortDescending();
+
+        list[0] = selectNeighbours(candidates, capacity, scratch.pruneSelected, scratch);
+        System.arraycopy(scratch.pruneSelected, 0, list, 1, list[0]);
+    }
+
+    /**
+     * Neighbour selection heuristic: prefer candidates that are closer to the base node than to
+     * any neighbour already chosen, then back-fill with the pruned ones to keep the degree up.
+     * Candidates must be sorted descending; writes the chosen nodes to {@code out} and returns how many.
+     */
+    private int selectNeighbours(TopKCollector candidates, int max, int[] out, SearchScratch scratch) {
+        int limit = Math.min(max, candidates.size());
+        int count = 0;
+        int[] pruned = scratch.pruned(candidates.size());
+        int prunedCount = 0;
+
+        for (int c = 0; c < candidates.size() && count < limit; c++) {
+            int candidate = (int) candidates.id(c);
+            int candidateOffset = candidate * dimension;
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (similarity(vectors, candidateOffset, out[i]) > candidates.score(c)) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                out[count++] = candidate;
+            } else {
+                pruned[prunedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < prunedCount && count < limit; i++) {
+            out[count++] = pruned[i];
+        }
+        return count;
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int start, int level) {
+        int current = start;
+        float currentScore = similarity(query, queryOffset, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = neighbours[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float score = similarity(query, queryOffset, list[i]);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = list[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Returns this thread's scratch collector holding up to
+     * {@code ef} nodes sorted by descending score; it is only valid until the next call. With
+     * {@code liveOnly}, tombstoned nodes are still expanded but never enter the results.
+     */
+    private TopKCollector searchLayer(float[] query, int queryOffset, int start, int ef, int level, boolean liveOnly) {
+        SearchScratch scratch = this.scratch.get();
+        int stamp = scratch.nextVisitStamp(nodeCount);
+        int[] visited = scratch.visited;
+        CandidateQueue candidates = scratch.candidates;
+        TopKCollector results = scratch.results;
+        candidates.clear();
+        results.reset(ef);
+
+        float startScore = similarity(query, queryOffset, start);
+        visited[start] = stamp;
+        candidates.push(start, startScore);
+        if (!liveOnly || !deleted.get(start)) {
+            results.offer(start, startScore);
+        }
+
+        while (!candidates.isEmpty()) {
+            float currentScore = candidates.topScore();
+            int current = candidates.pop();
+            if (results.isFull() && currentScore < results.threshold()) {
+                break;
+            }
+
+            int[] list = neighbours[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (visited[neighbour] == stamp) {
+                    continue;
+                }
+                visited[neighbour] = stamp;
+
+                float score = similarity(query, queryOffset, neighbour);
+                if (!results.isFull() || score > results.threshold()) {
+                    candidates.push(neighbour, score);
+                    if (!liveOnly || !deleted.get(neighbour)) {
+                        results.offer(neighbour, score);
+                    }
+                }
+            }
+        }
+
+        results.sortDescending();
+        return results;
+    }
+
+    private float similarity(float[] query, int queryOffset, int node) {
+        return VectorMath.dot(query, queryOffset, vectors, node * dimension, dimension);
+    }
+
+    private int maxNeighbours(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - random.nextDouble(); // (0, 1]
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live nodes so tombstones stop costing memory and search time.
+     * The new graph is built without holding the lock; changes made meanwhile are replayed onto
+     * it before it replaces the current one. Called on the background compactor, but usable
+     * directly when a synchronous rebuild is wanted.
+     */
+    public void compact() {
+        int snapshotCount;
+        int[] liveNodes;
+        float[] liveVectors;
+        long[] liveIds;
+        long snapshotGeneration;
+        int dim;
+        lock.readLock().lock();
+        try {
+            if (deletedCount == 0) {
+                return;
+            }
+            snapshotCount = nodeCount;
+            snapshotGeneration = generation;
+            dim = dimension;
+            int live = nodeCount - deletedCount;
+            liveNodes = new int[live];
+            liveIds = new long[live];
+            liveVectors = new float[live * dimension];
+            int next = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                if (!deleted.get(node)) {
+                    liveNodes[next] = node;
+                    liveIds[next] = ids[node];
+                    System.arraycopy(vectors, node * dimension, liveVectors, next * dimension, dimension);
+                    next++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The expensive part runs without any lock
+        HnswVectorIndex rebuilt = new HnswVectorIndex(m, efConstruction, efSearch);
+        float[] vector = new float[dim];
+        for (int i = 0; i < liveIds.length; i++) {
+            System.arraycopy(liveVectors, i * dim, vector, 0, dim);
+            rebuilt.add(liveIds[i], vector);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (generation != snapshotGeneration) {
+                return;
+            }
+            // Replay removals and additions that happened while the new graph was being built
+            for (int i = 0; i < liveNodes.length; i++) {
+                if (deleted.get(liveNodes[i])) {
+                    Integer node = rebuilt.nodeById.remove(liveIds[i]);
+                    if (node != null) {
+                        rebuilt.markDeleted(node);
+                    }
+                }
+            }
+            for (int node = snapshotCount; node < nodeCount; node++) {
+                if (!deleted.get(node)) {
+                    rebuilt.add(ids[node], Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension));
+                }
+            }
+
+            nodeById.clear();
+            nodeById.putAll(rebuilt.nodeById);
+            vectors = rebuilt.vectors;
+            ids = rebuilt.ids;
+            neighbours = rebuilt.neighbours;
+            deleted = rebuilt.deleted;
+            deletedCount = rebuilt.deletedCount;
+            nodeCount = rebuilt.nodeCount;
+            entryPoint = rebuilt.entryPoint;
+            maxLevel = rebuilt.maxLevel;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reset() {
+        nodeById.clear();
+        vectors = new float[0];
+        ids = new long[0];
+        neighbours = new int[0][][];
+        deleted = new BitSet();
+        deletedCount = 0;
+        nodeCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+        neighbours = Arrays.copyOf(neighbours, newCapacity);
+    }
+
+    /**
+     * Per-thread working memory for graph searches so that a query allocates nothing per visited node.
+     */
+    private static final class SearchScratch {
+        final CandidateQueue candidates = new CandidateQueue();
+        final TopKCollector results = new TopKCollector(64);
+        final TopKCollector pruneCandidates = new TopKCollector(64);
+        int[] selected = new int[0];
+        int[] pruneSelected = new int[0];
+        int[] visited = new int[0];
+        int visitStamp;
+        private int[] pruned = new int[0];
+
+        int[] pruned(int capacity) {
+            if (pruned.length < capacity) {
+                pruned = new int[capacity];
+            }
+            return pruned;
+        }
+
+        SearchScratch ensureNeighbourCapacity(int maxNeighbours) {
+            if (selected.length < maxNeighbours + 1) {
+                selected = new int[maxNeighbours + 1];
+                pruneSelected = new int[maxNeighbours + 1];
+            }
+            return this;
+        }
+
+        int nextVisitStamp(int nodeCount) {
+            if (visited.length < nodeCount) {
+                visited = new int[Math.max(nodeCount, visited.length * 2)];
+                visitStamp = 0;
+            }
+            if (++visitStamp == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                visitStamp = 1;
+            }
+            return visitStamp;
+        }
+    }
+
+    /**
+     * Unbounded binary max-heap of (node, score) pairs used as the search frontier.
+     */
+    private static final class CandidateQueue {
+        private int[] nodes = new int[64];
+        private float[] scores = new float[64];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            scores[index] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && scores[right] > scores[child]) {
+                    child = right;
+                }
+                if (lastScore >= scores[child]) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            nodes[index] = lastNode;
+            scores[index] = lastScore;
+            return top;
+        }
+    }
+}
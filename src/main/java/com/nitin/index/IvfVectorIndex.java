@@ -0,0 +1,414 @@
+package com.nitin.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted-file (IVF) index: vectors are partitioned by spherical k-means, and a query only
+ * scans the {@code nprobe} clusters whose centroids are most similar to it.
+ * <p>
+ * Each cluster tracks the smallest similarity between its centroid and any member, which bounds
+ * how similar a query can be to anything inside it. Clusters whose bound is below the current
+ * k-th best score are skipped without being scanned. A positive similarity threshold only ends
+ * the search early: once {@code k} hits at or above it are found, the remaining, less similar
+ * clusters are not probed. The best {@code k} hits found are always returned, whatever their score.
+ * <p>
+ * Until {@code trainMinSize} vectors exist the index behaves like a flat scan. Training runs on a
+ * background thread and is repeated whenever the corpus has grown by {@code retrainGrowth}
+ * since the last run; new vectors are assigned to the nearest existing centroid in the meantime.
+ */
+public class IvfVectorIndex implements VectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int SAMPLES_PER_CENTROID = 64;
+
+    private final int configuredLists;
+    private final int nprobe;
+    private final float similarityThreshold;
+    private final int trainMinSize;
+    private final double retrainGrowth;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final ThreadLocal<TopKCollector> probeOrder = ThreadLocal.withInitial(() -> new TopKCollector(16));
+    private final AtomicBoolean training = new AtomicBoolean();
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rag-ivf-trainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int dimension = -1;
+    private float[] vectors = new float[0];
+    private long[] ids = new long[0];
+    private int size;
+    private long modCount;
+
+    // Clustering state; centroids == null until the first training run
+    private float[] centroids;
+    private int listCount;
+    private int[][] members;
+    private int[] memberCounts;
+    private float[] minCentroidSimilarity;
+    private int[] clusterOfRow = new int[0];
+    private int[] positionInCluster = new int[0];
+    private int trainedSize;
+
+    public IvfVectorIndex(int lists, int nprobe, float similarityThreshold, int trainMinSize, double retrainGrowth) {
+        this.configuredLists = lists;
+        this.nprobe = Math.max(nprobe, 1);
+        this.similarityThreshold = similarityThreshold;
+        this.trainMinSize = Math.max(trainMinSize, 1);
+        this.retrainGrowth = Math.max(retrainGrowth, 1.1);
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == -1) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        dimension + " vs " + vector.length);
+            }
+
+            Integer existing = rowById.get(id);
+            int row;
+            if (existing != null) {
+                row = existing;
+                detachFromCluster(row);
+            } else {
+                row = size++;
+                ensureCapacity(size);
+                ids[row] = id;
+                rowById.put(id, row);
+            }
+            System.arraycopy(VectorMath.normalize(vector), 0, vectors, row * dimension, dimension);
+            if (centroids != null) {
+                attachToCluster(row, nearestCentroid(vectors, row * dimension));
+            }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        maybeScheduleTraining();
+    }
+
+    @Override
+    public void remove(Collection<Long> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : idsToRemove) {
+                Integer row = rowById.remove(id);
+                if (row == null) {
+                    continue;
+                }
+                if (centroids != null) {
+                    detachFromCluster(row);
+                }
+                int last = size - 1;
+                if (row != last) {
+                    ids[row] = ids[last];
+                    System.arraycopy(vectors, last * dimension, vectors, row * dimension, dimension);
+                    rowById.put(ids[row], row);
+                    if (centroids != null) {
+                        int cluster = clusterOfRow[last];
+                        clusterOfRow[row] = cluster;
+                        positionInCluster[row] = positionInCluster[last];
+                        members[cluster][positionInCluster[row]] = row;
+                    }
+                }
+                size--;
+                modCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowById.clear();
+            vectors = new float[0];
+            ids = new long[0];
+            size = 0;
+            dimension = -1;
+            centroids = null;
+            clusterOfRow = new int[0];
+            positionInCluster = new int[0];
+            trainedSize = 0;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (size == 0 || k <= 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        query.length + " vs " + dimension);
+            }
+
+            float[] q = VectorMath.normalize(query);
+            TopKCollector topK = TopKCollector.forCurrentThread(k);
+            if (centroids == null) {
+                for (int row = 0; row < size; row++) {
+                    topK.offer(ids[row], VectorMath.dot(q, 0, vectors, row * dimension, dimension));
+                }
+                return topK.toHits();
+            }
+
+            TopKCollector probes = probeOrder.get();
+            probes.reset(Math.min(nprobe, listCount));
+            for (int cluster = 0; cluster < listCount; cluster++) {
+                probes.offer(cluster, VectorMath.dot(q, 0, centroids, cluster * dimension, dimension));
+            }
+            probes.sortDescending();
+
+            for (int p = 0; p < probes.size(); p++) {
+                // k good-enough hits already; the clusters left are further from the query
+                if (similarityThreshold > 0f && topK.isFull() && topK.threshold() >= similarityThreshold) {
+                    break;
+                }
+                int cluster = (int) probes.id(p);
+                if (memberCounts[cluster] == 0 || upperBound(probes.score(p), minCentroidSimilarity[cluster]) < topK.threshold()) {
+                    continue;
+                }
+                int[] rows = members[cluster];
+                for (int i = 0; i < memberCounts[cluster]; i++) {
+                    int row = rows[i];
+                    topK.offer(ids[row], VectorMath.dot(q, 0, vectors, row * dimension, dimension));
+                }
+            }
+            return topK.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs k-means over the current vectors and swaps in the new clustering. Called on the
+     * background trainer, but usable directly when a synchronous rebuild is wanted.
+     */
+    public void train() {
+        float[] sample;
+        int lists;
+        int dim;
+        long sampledAt;
+        lock.readLock().lock();
+        try {
+            if (size < trainMinSize) {
+                return;
+            }
+            lists = configuredLists > 0 ? Math.min(configuredLists, size) : Math.max(1, (int) Math.sqrt(size));
+            sample = sampleRows(Math.min(size, lists * SAMPLES_PER_CENTROID));
+            dim = dimension;
+            sampledAt = size;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The expensive part runs without any lock; only the final assignment blocks writers
+        float[] trained = kMeans(sample, lists, dim);
+
+        lock.writeLock().lock();
+        try {
+            // The index may have been cleared (or refilled with other vectors) while training
+            if (dimension != dim || size == 0) {
+                return;
+            }
+            installClustering(trained, lists);
+            trainedSize = Math.max(size, (int) sampledAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void maybeScheduleTraining() {
+        boolean due;
+        lock.readLock().lock();
+        try {
+            due = size >= trainMinSize && size >= trainedSize * retrainGrowth;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (due && training.compareAndSet(false, true)) {
+            trainer.execute(() -> {
+                try {
+                    train();
+                } finally {
+                    training.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Largest similarity a unit query can have with any member, given the query-centroid
+     * similarity and the smallest member-centroid similarity of the cluster (angle triangle inequality).
+     */
+    private static float upperBound(float queryCentroidSimilarity, float minMemberSimilarity) {
+        double queryAngle = Math.acos(Math.max(-1f, Math.min(1f, queryCentroidSimilarity)));
+        double radius = Math.acos(Math.max(-1f, Math.min(1f, minMemberSimilarity)));
+        return (float) Math.cos(Math.max(0.0, queryAngle - radius));
+    }
+
+    private void installClustering(float[] newCentroids, int lists) {
+        centroids = newCentroids;
+        listCount = lists;
+        members = new int[lists][];
+        memberCounts = new int[lists];
+        minCentroidSimilarity = new float[lists];
+        Arrays.fill(minCentroidSimilarity, 1f);
+        for (int cluster = 0; cluster < lists; cluster++) {
+            members[cluster] = new int[16];
+        }
+        clusterOfRow = Arrays.copyOf(clusterOfRow, ids.length);
+        positionInCluster = Arrays.copyOf(positionInCluster, ids.length);
+        for (int row = 0; row < size; row++) {
+            attachToCluster(row, nearestCentroid(vectors, row * dimension));
+        }
+    }
+
+    private void attachToCluster(int row, int cluster) {
+        if (memberCounts[cluster] == members[cluster].length) {
+            members[cluster] = Arrays.copyOf(members[cluster], members[cluster].length * 2);
+        }
+        int position = memberCounts[cluster]++;
+        members[cluster][position] = row;
+        clusterOfRow[row] = cluster;
+        positionInCluster[row] = position;
+        float similarity = VectorMath.dot(vectors, row * dimension, centroids, cluster * dimension, dimension);
+        minCentroidSimilarity[cluster] = Math.min(minCentroidSimilarity[cluster], similarity);
+    }
+
+    // Leaves minCentroidSimilarity untouched: a stale (smaller) bound is still a safe bound
+    private void detachFromCluster(int row) {
+        if (centroids == null) {
+            return;
+        }
+        int cluster = clusterOfRow[row];
+        int position = positionInCluster[row];
+        int lastPosition = --memberCounts[cluster];
+        if (position != lastPosition) {
+            int moved = members[cluster][lastPosition];
+            members[cluster][position] = moved;
+            positionInCluster[moved] = position;
+        }
+    }
+
+    private int nearestCentroid(float[] data, int offset) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int cluster = 0; cluster < listCount; cluster++) {
+            float score = VectorMath.dot(data, offset, centroids, cluster * dimension, dimension);
+            if (score > bestScore) {
+                bestScore = score;
+                best = cluster;
+            }
+        }
+        return best;
+    }
+
+    private float[] sampleRows(int count) {
+        SplittableRandom random = new SplittableRandom(modCount);
+        float[] sample = new float[count * dimension];
+        for (int i = 0; i < count; i++) {
+            // Uniform sample with replacement, or every row when the corpus is small
+            int row = count == size ? i : random.nextInt(size);
+            System.arraycopy(vectors, row * dimension, sample, i * dimension, dimension);
+        }
+        return sample;
+    }
+
+    /**
+     * Spherical k-means (Lloyd iterations with re-normalized centroids) over the sampled rows.
+     */
+    private static float[] kMeans(float[] sample, int lists, int dim) {
+        int rows = sample.length / dim;
+        SplittableRandom random = new SplittableRandom(rows);
+        float[] result = new float[lists * dim];
+        for (int cluster = 0; cluster < lists; cluster++) {
+            System.arraycopy(sample, random.nextInt(rows) * dim, result, cluster * dim, dim);
+        }
+
+        int[] assignment = new int[rows];
+        float[] sums = new float[lists * dim];
+        int[] counts = new int[lists];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            for (int row = 0; row < rows; row++) {
+                int best = 0;
+                float bestScore = Float.NEGATIVE_INFINITY;
+                for (int cluster = 0; cluster < lists; cluster++) {
+                    float score = VectorMath.dot(sample, row * dim, result, cluster * dim, dim);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = cluster;
+                    }
+                }
+                assignment[row] = best;
+                counts[best]++;
+                for (int i = 0; i < dim; i++) {
+                    sums[best * dim + i] += sample[row * dim + i];
+                }
+            }
+
+            for (int cluster = 0; cluster < lists; cluster++) {
+                float[] centroid = new float[dim];
+                if (counts[cluster] == 0) {
+                    // Re-seed empty clusters from a random sample row
+                    System.arraycopy(sample, random.nextInt(rows) * dim, centroid, 0, dim);
+                } else {
+                    System.arraycopy(sums, cluster * dim, centroid, 0, dim);
+                }
+                System.arraycopy(VectorMath.normalize(centroid), 0, result, cluster * dim, dim);
+            }
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+        clusterOfRow = Arrays.copyOf(clusterOfRow, newCapacity);
+        positionInCluster = Arrays.copyOf(positionInCluster, newCapacity);
+    }
+}
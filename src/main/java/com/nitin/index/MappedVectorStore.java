@@ -0,0 +1,439 @@
+package com.nitin.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Persistent exact-search index made of append-only, memory-mapped segment files.
+ * <p>
+ * Each segment holds up to {@code segmentCapacity} fixed-stride rows laid out as
+ * {@code header | id column | tombstone bitmap | float vectors}. New vectors are appended to the
+ * last segment, removals only flip a tombstone bit, and searches score straight against the
+ * mapped pages, so the vectors never pass through the Java heap. Opening the store maps the
+ * files and reads the id column; nothing is re-embedded or loaded from the database.
+ * <p>
+ * When more than {@code COMPACT_RATIO} of a segment's rows are tombstones, the segment is
+ * rewritten with only its live rows (sized to fit) and atomically moved over the old file, so
+ * re-indexing does not grow the store without bound.
+ */
+public class MappedVectorStore implements VectorIndex, Closeable {
+
+    private static final int MAGIC = 0x52414756; // "RAGV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int DIMENSION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".vec";
+    private static final double COMPACT_RATIO = 0.5;
+
+    /**
+     * Modulus of the id checksums, a Mersenne prime below 2^61 so sums never overflow a long.
+     * The database side computes the same sums with {@code MOD}.
+     */
+    public static final long CHECKSUM_MODULUS = (1L << 61) - 1;
+    /**
+     * Ids are reduced modulo this before squaring, so each square fits in a long.
+     */
+    public static final long CHECKSUM_SQUARE_BASE = Integer.MAX_VALUE;
+
+    private final Path directory;
+    private final int segmentCapacity;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();
+    // Packed (segment index << 32 | row) of the live row for each id
+    private final Map<Long, Long> locationById = new HashMap<>();
+    private int dimension = -1;
+
+    public MappedVectorStore(Path directory, int segmentCapacity) throws IOException {
+        if (segmentCapacity <= 0) {
+            throw new IllegalArgumentException("Segment capacity must be positive");
+        }
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        Files.createDirectories(directory);
+        openExistingSegments();
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == -1) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        dimension + " vs " + vector.length);
+            }
+
+            Long existing = locationById.remove(id);
+            if (existing != null) {
+                segmentOf(existing).markDeleted(rowOf(existing));
+            }
+
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.isFull()) {
+                segment = createSegment(segments.size());
+                segments.add(segment);
+            }
+            int row = segment.append(id, VectorMath.normalize(vector));
+            locationById.put(id, location(segments.size() - 1, row));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append vector to store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> touched = new HashSet<>();
+            for (Long id : ids) {
+                Long location = locationById.remove(id);
+                if (location != null) {
+                    segmentOf(location).markDeleted(rowOf(location));
+                    touched.add((int) (location >>> 32));
+                }
+            }
+            for (int segmentIndex : touched) {
+                Segment segment = segments.get(segmentIndex);
+                if (segment.count > 0 && segment.deletedRows() > segment.count * COMPACT_RATIO) {
+                    compactSegment(segmentIndex);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact vector store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+                Files.deleteIfExists(segment.path);
+            }
+            segments.clear();
+            locationById.clear();
+            dimension = -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear vector store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return locationById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (locationById.isEmpty() || k <= 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        query.length + " vs " + dimension);
+            }
+
+            float[] q = VectorMath.normalize(query);
+            TopKCollector topK = TopKCollector.forCurrentThread(k);
+            for (Segment segment : segments) {
+                for (int row = 0; row < segment.count; row++) {
+                    if (!segment.isDeleted(row)) {
+                        topK.offer(segment.id(row), segment.dot(q, row));
+                    }
+                }
+            }
+            return topK.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Largest live id, the sum of live ids modulo {@link #CHECKSUM_MODULUS}, and the sum of
+     * squares of the ids modulo {@link #CHECKSUM_SQUARE_BASE}, also modulo {@link #CHECKSUM_MODULUS}.
+     * The caller uses them to tell whether the store holds the same id set as the database,
+     * not just as many ids.
+     */
+    public long[] idChecksums() {
+        lock.readLock().lock();
+        try {
+            long maxId = 0;
+            long sum = 0;
+            long squareSum = 0;
+            for (long id : locationById.keySet()) {
+                maxId = Math.max(maxId, id);
+                sum = (sum + id % CHECKSUM_MODULUS) % CHECKSUM_MODULUS;
+                long reduced = id % CHECKSUM_SQUARE_BASE;
+                squareSum = (squareSum + (reduced * reduced) % CHECKSUM_MODULUS) % CHECKSUM_MODULUS;
+            }
+            return new long[]{maxId, sum, squareSum};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes dirty pages to disk and releases the file handles.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openExistingSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path file : files) {
+            Segment segment = Segment.open(file);
+            if (dimension == -1) {
+                dimension = segment.dimension;
+            } else if (segment.dimension != dimension) {
+                segment.close();
+                throw new IOException("Segment " + file + " has dimension " + segment.dimension +
+                        ", expected " + dimension);
+            }
+
+            int segmentIndex = segments.size();
+            segments.add(segment);
+            for (int row = 0; row < segment.count; row++) {
+                if (!segment.isDeleted(row)) {
+                    locationById.put(segment.id(row), location(segmentIndex, row));
+                }
+            }
+        }
+    }
+
+    private Segment createSegment(int index) throws IOException {
+        long vectorBytes = (long) segmentCapacity * dimension * Float.BYTES;
+        if (Segment.fileSize(segmentCapacity, dimension) > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segment of " + segmentCapacity + " vectors (" + vectorBytes +
+                    " bytes) exceeds the 2GB mapping limit; lower the segment capacity");
+        }
+        Path path = directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        return Segment.create(path, segmentCapacity, dimension);
+    }
+
+    // Caller holds the write lock. Copies the live rows into a right-sized file and swaps it in
+    private void compactSegment(int segmentIndex) throws IOException {
+        Segment old = segments.get(segmentIndex);
+        int live = old.count - old.deletedRows();
+        Path temp = old.path.resolveSibling(old.path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        Segment compacted = Segment.create(temp, Math.max(live, 1), dimension);
+        float[] vector = new float[dimension];
+        for (int row = 0; row < old.count; row++) {
+            if (!old.isDeleted(row)) {
+                old.read(row, vector);
+                compacted.append(old.id(row), vector);
+            }
+        }
+        compacted.buffer.force();
+        compacted.close();
+        old.close();
+        Files.move(temp, old.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Segment reopened = Segment.open(old.path);
+        segments.set(segmentIndex, reopened);
+        for (int row = 0; row < reopened.count; row++) {
+            locationById.put(reopened.id(row), location(segmentIndex, row));
+        }
+    }
+
+    private Segment segmentOf(long location) {
+        return segments.get((int) (location >>> 32));
+    }
+
+    private static int rowOf(long location) {
+        return (int) location;
+    }
+
+    private static long location(int segmentIndex, int row) {
+        return ((long) segmentIndex << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final int dimension;
+        final int idsOffset;
+        final int tombstonesOffset;
+        final int vectorsOffset;
+        int count;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity, int dimension, int count) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.dimension = dimension;
+            this.count = count;
+            this.idsOffset = HEADER_BYTES;
+            this.tombstonesOffset = idsOffset + capacity * Long.BYTES;
+            this.vectorsOffset = tombstonesOffset + tombstoneWords(capacity) * Long.BYTES;
+        }
+
+        static long fileSize(int capacity, int dimension) {
+            return HEADER_BYTES + (long) capacity * Long.BYTES + (long) tombstoneWords(capacity) * Long.BYTES
+                    + (long) capacity * dimension * Float.BYTES;
+        }
+
+        static Segment create(Path path, int capacity, int dimension) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = map(channel, fileSize(capacity, dimension));
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(DIMENSION_OFFSET, dimension);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(COUNT_OFFSET, 0);
+            return new Segment(path, channel, buffer, capacity, dimension, 0);
+        }
+
+        static Segment open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+                    throw new IOException("Not a vector segment file: " + path);
+                }
+                int dimension = header.getInt(DIMENSION_OFFSET);
+                int capacity = header.getInt(CAPACITY_OFFSET);
+                int count = header.getInt(COUNT_OFFSET);
+                if (count < 0 || count > capacity) {
+                    throw new IOException("Corrupt row count " + count + " in segment " + path);
+                }
+                MappedByteBuffer buffer = map(channel, fileSize(capacity, dimension));
+                return new Segment(path, channel, buffer, capacity, dimension, count);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+
+        private static int tombstoneWords(int capacity) {
+            return (capacity + Long.SIZE - 1) / Long.SIZE;
+        }
+
+        boolean isFull() {
+            return count == capacity;
+        }
+
+        // The row count is published last, so a crash mid-append never exposes a partial row
+        int append(long id, float[] vector) {
+            int row = count;
+            int base = vectorsOffset + row * dimension * Float.BYTES;
+            for (int i = 0; i < dimension; i++) {
+                buffer.putFloat(base + i * Float.BYTES, vector[i]);
+            }
+            buffer.putLong(idsOffset + row * Long.BYTES, id);
+            count = row + 1;
+            buffer.putInt(COUNT_OFFSET, count);
+            return row;
+        }
+
+        long id(int row) {
+            return buffer.getLong(idsOffset + row * Long.BYTES);
+        }
+
+        int deletedRows() {
+            int deleted = 0;
+            for (int word = 0; word < tombstoneWords(count); word++) {
+                deleted += Long.bitCount(buffer.getLong(tombstonesOffset + word * Long.BYTES));
+            }
+            return deleted;
+        }
+
+        void read(int row, float[] out) {
+            int base = vectorsOffset + row * dimension * Float.BYTES;
+            for (int i = 0; i < dimension; i++) {
+                out[i] = buffer.getFloat(base + i * Float.BYTES);
+            }
+        }
+
+        boolean isDeleted(int row) {
+            long word = buffer.getLong(tombstonesOffset + (row >>> 6) * Long.BYTES);
+            return (word & (1L << (row & 63))) != 0;
+        }
+
+        void markDeleted(int row) {
+            int offset = tombstonesOffset + (row >>> 6) * Long.BYTES;
+            buffer.putLong(offset, buffer.getLong(offset) | (1L << (row & 63)));
+        }
+
+        float dot(float[] query, int row) {
+            int base = vectorsOffset + row * dimension * Float.BYTES;
+            float sum = 0f;
+            for (int i = 0; i < dimension; i++) {
+                sum += query[i] * buffer.getFloat(base + i * Float.BYTES);
+            }
+            return sum;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
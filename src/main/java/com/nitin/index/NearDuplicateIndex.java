@@ -0,0 +1,150 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LSH band table over {@link SimHash} fingerprints that answers "is there a stored chunk within
+ * {@code maxDistance} bits of this one" without scanning every fingerprint.
+ * <p>
+ * The 64 bits are cut into {@code maxDistance + 1} bands. Two fingerprints that differ in at
+ * most {@code maxDistance} bits must agree exactly on at least one band, so probing the bucket of
+ * each band and checking the real distance of what is found there misses no match.
+ * <p>
+ * Each entry carries an owner code (a hash of the file it came from) so a file being re-indexed
+ * is not matched against its own previous chunks.
+ */
+public class NearDuplicateIndex {
+
+    private record Entry(long id, long fingerprint, int owner) {
+    }
+
+    private final int maxDistance;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+    private final List<Map<Long, List<Entry>>> bands;
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public NearDuplicateIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 15) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 15");
+        }
+        this.maxDistance = maxDistance;
+        int bandCount = maxDistance + 1;
+        this.bandShifts = new int[bandCount];
+        this.bandMasks = new long[bandCount];
+        this.bands = new ArrayList<>(bandCount);
+        int shift = 0;
+        for (int band = 0; band < bandCount; band++) {
+            // Spread the remainder so band widths differ by at most one bit
+            int width = Long.SIZE / bandCount + (band < Long.SIZE % bandCount ? 1 : 0);
+            bandShifts[band] = shift;
+            bandMasks[band] = width == Long.SIZE ? -1L : (1L << width) - 1;
+            shift += width;
+            bands.add(new HashMap<>());
+        }
+    }
+
+    public void add(long id, long fingerprint, int owner) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            Entry entry = new Entry(id, fingerprint, owner);
+            entriesById.put(id, entry);
+            for (int band = 0; band < bands.size(); band++) {
+                bands.get(band).computeIfAbsent(bandKey(fingerprint, band), key -> new ArrayList<>(2)).add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                removeLocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id of the closest stored chunk within {@code maxDistance} bits that belongs to a different
+     * owner, or -1 when there is none.
+     */
+    public long findNearDuplicate(long fingerprint, int owner) {
+        lock.readLock().lock();
+        try {
+            long bestId = -1;
+            int bestDistance = maxDistance + 1;
+            for (int band = 0; band < bands.size() && bestDistance > 0; band++) {
+                List<Entry> bucket = bands.get(band).get(bandKey(fingerprint, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry entry : bucket) {
+                    if (entry.owner() == owner) {
+                        continue;
+                    }
+                    int distance = SimHash.distance(fingerprint, entry.fingerprint());
+                    if (distance < bestDistance || (distance == bestDistance && entry.id() < bestId)) {
+                        bestDistance = distance;
+                        bestId = entry.id();
+                    }
+                }
+            }
+            return bestId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entriesById.clear();
+            bands.forEach(Map::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Entry entry = entriesById.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < bands.size(); band++) {
+            Map<Long, List<Entry>> buckets = bands.get(band);
+            long key = bandKey(entry.fingerprint(), band);
+            List<Entry> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    private long bandKey(long fingerprint, int band) {
+        return (fingerprint >>> bandShifts[band]) & bandMasks[band];
+    }
+}
@@ -0,0 +1,349 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Two-pass exact-recall index: a first pass scans compact quantized codes, then the best
+ * {@code rerankDepth} candidates are re-scored against their full float vectors.
+ * <p>
+ * {@link Quantization#INT8} stores one signed byte per dimension plus a per-row scale (4x smaller
+ * than float32) and scores with an integer dot product. {@link Quantization#BINARY} stores one sign
+ * bit per dimension (32x smaller) and scores by Hamming distance.
+ * <p>
+ * By default the re-rank reads a resident half-precision (fp16) copy of each vector, so a query
+ * never leaves memory. Given a {@link VectorSource}, only the codes are resident and the
+ * shortlist's vectors are fetched from it for each query, outside the index lock: the smallest
+ * heap, at the cost of a round trip per search.
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    public enum Quantization {
+        INT8,
+        BINARY
+    }
+
+    /**
+     * Supplies the full-precision vectors for re-ranking; ids it no longer knows are left out.
+     */
+    @FunctionalInterface
+    public interface VectorSource {
+        Map<Long, float[]> fetch(Collection<Long> ids);
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Decoded value of every fp16 bit pattern, so the re-rank decodes with one load per component
+    private static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int bits = 0; bits < HALF_TO_FLOAT.length; bits++) {
+            int exponent = (bits >>> 10) & 0x1f;
+            int mantissa = bits & 0x3ff;
+            float value;
+            if (exponent == 0) {
+                value = mantissa * 0x1.0p-24f;
+            } else if (exponent == 0x1f) {
+                value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            } else {
+                value = Float.intBitsToFloat((exponent + 112) << 23 | mantissa << 13);
+            }
+            HALF_TO_FLOAT[bits] = (bits & 0x8000) != 0 ? -value : value;
+        }
+    }
+
+    private final Quantization quantization;
+    private final int rerankDepth;
+    private final VectorSource vectorSource;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final ThreadLocal<TopKCollector> candidates = ThreadLocal.withInitial(() -> new TopKCollector(64));
+
+    private int dimension = -1;
+    private int wordsPerRow;
+    private long[] ids = new long[0];
+    private byte[] int8Codes = new byte[0];
+    private float[] int8Scales = new float[0];
+    private long[] bitCodes = new long[0];
+    // fp16 rows for the re-rank; unused when the vectors come from a VectorSource
+    private short[] halfVectors = new short[0];
+    private int size;
+
+    public QuantizedVectorIndex(Quantization quantization, int rerankDepth) {
+        this(quantization, rerankDepth, null);
+    }
+
+    public QuantizedVectorIndex(Quantization quantization, int rerankDepth, VectorSource vectorSource) {
+        this.quantization = quantization;
+        this.rerankDepth = Math.max(rerankDepth, 1);
+        this.vectorSource = vectorSource;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == -1) {
+                dimension = vector.length;
+                wordsPerRow = (dimension + Long.SIZE - 1) / Long.SIZE;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        dimension + " vs " + vector.length);
+            }
+
+            Integer existing = rowById.get(id);
+            int row = existing != null ? existing : size;
+            if (existing == null) {
+                ensureCapacity(size + 1);
+                ids[row] = id;
+                rowById.put(id, row);
+                size++;
+            }
+
+            float[] normalized = VectorMath.normalize(vector);
+            if (vectorSource == null) {
+                int offset = row * dimension;
+                for (int i = 0; i < dimension; i++) {
+                    halfVectors[offset + i] = toHalf(normalized[i]);
+                }
+            }
+            if (quantization == Quantization.INT8) {
+                int8Scales[row] = quantizeInt8(normalized, int8Codes, row * dimension);
+            } else {
+                quantizeBinary(normalized, bitCodes, row * wordsPerRow);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<Long> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : idsToRemove) {
+                Integer row = rowById.remove(id);
+                if (row == null) {
+                    continue;
+                }
+                int last = size - 1;
+                if (row != last) {
+                    ids[row] = ids[last];
+                    if (vectorSource == null) {
+                        System.arraycopy(halfVectors, last * dimension, halfVectors, row * dimension, dimension);
+                    }
+                    if (quantization == Quantization.INT8) {
+                        System.arraycopy(int8Codes, last * dimension, int8Codes, row * dimension, dimension);
+                        int8Scales[row] = int8Scales[last];
+                    } else {
+                        System.arraycopy(bitCodes, last * wordsPerRow, bitCodes, row * wordsPerRow, wordsPerRow);
+                    }
+                    rowById.put(ids[row], row);
+                }
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowById.clear();
+            ids = new long[0];
+            halfVectors = new short[0];
+            int8Codes = new byte[0];
+            int8Scales = new float[0];
+            bitCodes = new long[0];
+            size = 0;
+            dimension = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] q = VectorMath.normalize(query);
+
+        // First pass: approximate scores over the quantized codes; ids hold row numbers here
+        List<Long> shortlistIds;
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vector dimensions don't match: " +
+                        query.length + " vs " + dimension);
+            }
+            TopKCollector shortlist = candidates.get();
+            shortlist.reset(Math.max(rerankDepth, k));
+            if (quantization == Quantization.INT8) {
+                scanInt8(q, shortlist);
+            } else {
+                scanBinary(q, shortlist);
+            }
+            if (vectorSource == null) {
+                // Second pass: re-rank the shortlist against the resident fp16 rows
+                TopKCollector topK = TopKCollector.forCurrentThread(k);
+                for (int i = 0; i < shortlist.size(); i++) {
+                    int row = (int) shortlist.id(i);
+                    topK.offer(ids[row], halfDot(q, row * dimension));
+                }
+                return topK.toHits();
+            }
+            shortlistIds = new ArrayList<>(shortlist.size());
+            for (int i = 0; i < shortlist.size(); i++) {
+                shortlistIds.add(ids[(int) shortlist.id(i)]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Second pass: exact float re-rank of the shortlist, fetched in one round trip
+        Map<Long, float[]> fullVectors = vectorSource.fetch(shortlistIds);
+        TopKCollector topK = TopKCollector.forCurrentThread(k);
+        for (Long id : shortlistIds) {
+            float[] vector = fullVectors.get(id);
+            if (vector != null && vector.length == q.length) {
+                topK.offer(id, VectorMath.dot(q, VectorMath.normalize(vector)));
+            }
+        }
+        return topK.toHits();
+    }
+
+    private float halfDot(float[] query, int offset) {
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * HALF_TO_FLOAT[halfVectors[offset + i] & 0xffff];
+        }
+        return sum;
+    }
+
+    private void scanInt8(float[] query, TopKCollector shortlist) {
+        byte[] queryCodes = new byte[dimension];
+        float queryScale = quantizeInt8(query, queryCodes, 0);
+        for (int row = 0; row < size; row++) {
+            int offset = row * dimension;
+            int sum = 0;
+            for (int i = 0; i < dimension; i++) {
+                sum += queryCodes[i] * int8Codes[offset + i];
+            }
+            shortlist.offer(row, sum / (queryScale * int8Scales[row]));
+        }
+    }
+
+    private void scanBinary(float[] query, TopKCollector shortlist) {
+        long[] queryBits = new long[wordsPerRow];
+        quantizeBinary(query, queryBits, 0);
+        for (int row = 0; row < size; row++) {
+            int offset = row * wordsPerRow;
+            int hamming = 0;
+            for (int w = 0; w < wordsPerRow; w++) {
+                hamming += Long.bitCount(queryBits[w] ^ bitCodes[offset + w]);
+            }
+            shortlist.offer(row, -hamming);
+        }
+    }
+
+    /**
+     * Symmetric per-vector scalar quantization to [-127, 127]; returns the scale (codes / value).
+     */
+    private float quantizeInt8(float[] vector, byte[] codes, int offset) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 1f : 127f / maxAbs;
+        for (int i = 0; i < dimension; i++) {
+            codes[offset + i] = (byte) Math.round(vector[i] * scale);
+        }
+        return scale;
+    }
+
+    /**
+     * IEEE 754 binary16 encoding with round-half-to-even (Float.floatToFloat16 needs Java 20).
+     */
+    static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        if (Float.isNaN(value)) {
+            return (short) (sign | 0x7e00);
+        }
+        float abs = Math.abs(value);
+        if (abs >= 65520f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (abs <= 0x1.0p-25f) {
+            return (short) sign;
+        }
+        int exponent = Math.getExponent(value);
+        int shift = 13;
+        int significand = bits & 0x7fffff;
+        if (exponent < -14) {
+            // Subnormal in fp16: make the implicit bit explicit and shift it down as well
+            shift += -14 - exponent;
+            exponent = -15;
+            significand |= 0x800000;
+        }
+        int half = significand >> shift;
+        int remainder = significand & ((1 << shift) - 1);
+        int midpoint = 1 << (shift - 1);
+        if (remainder > midpoint || (remainder == midpoint && (half & 1) != 0)) {
+            half++;
+        }
+        // A carry out of the mantissa rolls into the exponent, which is the correct rounding
+        return (short) (sign | (((exponent + 15) << 10) + half));
+    }
+
+    private void quantizeBinary(float[] vector, long[] bits, int offset) {
+        Arrays.fill(bits, offset, offset + wordsPerRow, 0L);
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0f) {
+                bits[offset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        ids = Arrays.copyOf(ids, newCapacity);
+        if (vectorSource == null) {
+            halfVectors = Arrays.copyOf(halfVectors, newCapacity * dimension);
+        }
+        if (quantization == Quantization.INT8) {
+            int8Codes = Arrays.copyOf(int8Codes, newCapacity * dimension);
+            int8Scales = Arrays.copyOf(int8Scales, newCapacity);
+        } else {
+            bitCodes = Arrays.copyOf(bitCodes, newCapacity * wordsPerRow);
+        }
+    }
+}
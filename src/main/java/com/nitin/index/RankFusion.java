@@ -0,0 +1,33 @@
+package com.nitin.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges ranked result lists from different retrievers.
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * Reciprocal-rank fusion: each list contributes {@code 1 / (rankConstant + rank)} per id, so
+     * ids ranked well by several retrievers rise to the top regardless of how each one scales its
+     * scores. Returns up to {@code k} hits carrying the fused score.
+     */
+    @SafeVarargs
+    public static List<SearchHit> reciprocalRank(int k, int rankConstant, List<SearchHit>... rankings) {
+        Map<Long, Float> fused = new HashMap<>();
+        for (List<SearchHit> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                fused.merge(ranking.get(rank).id(), 1f / (rankConstant + rank + 1), Float::sum);
+            }
+        }
+
+        TopKCollector topK = TopKCollector.forCurrentThread(k);
+        fused.forEach(topK::offer);
+        return topK.toHits();
+    }
+}
@@ -0,0 +1,7 @@
+package com.nitin.index;
+
+/**
+ * A single retrieval result: the document (chunk) id and its similarity to the query.
+ */
+public record SearchHit(long id, float score) {
+}
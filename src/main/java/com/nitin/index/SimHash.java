@@ -0,0 +1,95 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 64-bit SimHash fingerprints of chunk text. Texts that share most of their word shingles get
+ * fingerprints a small Hamming distance apart, so near-duplicate chunks can be found without
+ * comparing embeddings.
+ * <p>
+ * Text is lower-cased and split on anything that is not a letter or digit, so case, punctuation
+ * and whitespace changes do not move the fingerprint. Features are overlapping word bigrams, or
+ * the single word of a one-word text. On 500-character chunks a one-word edit typically moves
+ * the fingerprint 4-8 bits, while unrelated text on the same topic lands around 30 bits away.
+ */
+public final class SimHash {
+
+    private static final int SHINGLE_SIZE = 2;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    public static long fingerprint(String text) {
+        List<String> words = words(text);
+        if (words.isEmpty()) {
+            return 0L;
+        }
+
+        int[] weights = new int[Long.SIZE];
+        int size = Math.min(SHINGLE_SIZE, words.size());
+        for (int start = 0; start + size <= words.size(); start++) {
+            long hash = FNV_OFFSET;
+            for (int w = start; w < start + size; w++) {
+                hash = fnv(hash, words.get(w));
+                hash = (hash ^ ' ') * FNV_PRIME;
+            }
+            hash = mix(hash);
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                weights[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static long fnv(long hash, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // MurmurHash3 finalizer: FNV alone leaves the high bits poorly mixed for short inputs
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
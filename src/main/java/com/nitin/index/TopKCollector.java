@@ -0,0 +1,179 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the {@code k} highest-scoring ids seen so far in a fixed-size binary min-heap over
+ * parallel primitive arrays, so selecting the top-k of {@code n} scores costs O(n log k) time
+ * and O(k) memory with no per-candidate allocation.
+ * <p>
+ * Instances are not thread-safe. {@link #forCurrentThread(int)} hands out one reusable
+ * collector per thread; callers must finish with it before the same thread asks again.
+ */
+public final class TopKCollector {
+
+    private static final ThreadLocal<TopKCollector> PER_THREAD = ThreadLocal.withInitial(() -> new TopKCollector(16));
+
+    private long[] ids;
+    private float[] scores;
+    private int k;
+    private int size;
+    private boolean sorted;
+
+    public TopKCollector(int k) {
+        this.ids = new long[Math.max(k, 1)];
+        this.scores = new float[Math.max(k, 1)];
+        reset(k);
+    }
+
+    /**
+     * Returns this thread's collector, emptied and resized for {@code k} results.
+     */
+    public static TopKCollector forCurrentThread(int k) {
+        TopKCollector collector = PER_THREAD.get();
+        collector.reset(k);
+        return collector;
+    }
+
+    public void reset(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        if (k > ids.length) {
+            ids = new long[k];
+            scores = new float[k];
+        }
+        this.k = k;
+        this.size = 0;
+        this.sorted = false;
+    }
+
+    /**
+     * Offers a candidate; returns {@code true} if it made it into the current top-k.
+     */
+    public boolean offer(long id, float score) {
+        if (sorted) {
+            throw new IllegalStateException("Collector was already sorted; reset it before reuse");
+        }
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || score <= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * The score a candidate has to beat to enter the top-k, or negative infinity while not full.
+     */
+    public float threshold() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    /**
+     * Heap-sorts the collected entries in place into descending score order, after which
+     * {@link #id(int)} and {@link #score(int)} read them by rank. Offering again requires a reset.
+     */
+    public void sortDescending() {
+        if (sorted) {
+            return;
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public float score(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Sorts the entries and copies them out; the only allocation is the k-sized result list.
+     */
+    public List<SearchHit> toHits() {
+        sortDescending();
+        List<SearchHit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hits.add(new SearchHit(ids[i], scores[i]));
+        }
+        return hits;
+    }
+
+    @Override
+    public String toString() {
+        return "TopKCollector{k=" + k + ", size=" + size + ", ids=" + Arrays.toString(Arrays.copyOf(ids, size)) + "}";
+    }
+
+    private void siftUp(int index) {
+        long id = ids[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            ids[index] = ids[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+
+    private void siftDown(int index, int length) {
+        long id = ids[index];
+        float score = scores[index];
+        int half = length >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < length && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ids[index] = ids[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
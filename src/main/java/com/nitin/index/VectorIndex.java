@@ -0,0 +1,42 @@
+package com.nitin.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A retrieval engine over chunk embeddings, keyed by document id.
+ * <p>
+ * Implementations must allow concurrent searches while chunks are added or removed.
+ */
+public interface VectorIndex {
+
+    /**
+     * Adds a vector, replacing any vector already stored for {@code id}.
+     */
+    void add(long id, float[] vector);
+
+    void remove(Collection<Long> ids);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Returns up to {@code k} hits ordered by descending cosine similarity.
+     */
+    List<SearchHit> search(float[] query, int k);
+
+    /**
+     * Searches several queries at once; result {@code i} holds the hits for {@code queries[i]}.
+     * The default runs one search per query. Indexes that keep their vectors in a single matrix
+     * override it so each row is read once for the whole batch.
+     */
+    default List<List<SearchHit>> searchBatch(float[][] queries, int k) {
+        List<List<SearchHit>> results = new ArrayList<>(queries.length);
+        for (float[] query : queries) {
+            results.add(search(query, k));
+        }
+        return results;
+    }
+}
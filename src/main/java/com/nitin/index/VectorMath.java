@@ -0,0 +1,79 @@
+package com.nitin.index;
+
+/**
+ * Similarity kernels shared by the vector indexes.
+ * <p>
+ * Embeddings are normalized to unit length once at ingest, so cosine similarity reduces to a
+ * dot product. The dot product runs on the JDK Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and falls back to a scalar loop otherwise.
+ */
+public final class VectorMath {
+    private static final boolean SIMD_ENABLED = detectSimd();
+
+    private VectorMath() {
+    }
+
+    public static boolean isSimdEnabled() {
+        return SIMD_ENABLED;
+    }
+
+    /**
+     * Number of float lanes the dot product processes per step (1 for the scalar fallback).
+     */
+    public static int lanes() {
+        return SIMD_ENABLED ? SimdKernels.lanes() : 1;
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        return SIMD_ENABLED
+                ? SimdKernels.dot(a, aOffset, b, bOffset, dimension)
+                : scalarDot(a, aOffset, b, bOffset, dimension);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector dimensions don't match: " + a.length + " vs " + b.length);
+        }
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    static float scalarDot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a unit-length copy of {@code vector}, or a plain copy when its norm is zero.
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = vector.clone();
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] *= scale;
+        }
+        return normalized;
+    }
+
+    // SimdKernels is only loaded once the incubator module is known to be resolvable
+    private static boolean detectSimd() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            float[] probe = {1f, 2f, 3f};
+            return SimdKernels.dot(probe, 0, probe, 0, probe.length) == 14f;
+        } catch (LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+}
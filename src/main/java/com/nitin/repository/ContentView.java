@@ -0,0 +1,10 @@
+package com.nitin.repository;
+
+/**
+ * Projection of a chunk row carrying only its id and text, used to build the lexical index.
+ */
+public interface ContentView {
+    Long getId();
+
+    String getContent();
+}
@@ -0,0 +1,117 @@
+package com.nitin.repository;
+
+import com.nitin.entity.Document;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts chunk rows with JDBC {@code PreparedStatement} batches instead of one JPA
+ * {@code persist} per row.
+ * <p>
+ * Ids come from the same {@code documents_seq} sequence Hibernate uses, with the same pooled
+ * semantics: each sequence value {@code hi} reserves the block {@code [hi - 49, hi]}, so ids
+ * handed out here and by Hibernate never overlap. The writer uses the caller's transaction when
+ * there is one; rows it inserts are not in the JPA persistence context.
+ */
+@Repository
+@DependsOn("entityManagerFactory") // the schema and sequence must exist before startup alignment
+public class DocumentBulkWriter {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentBulkWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO documents " +
+            "(id, content, file_name, chunk_index, source_path, fingerprint, duplicate_of, embedding, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_FINGERPRINT_SQL = "UPDATE documents SET fingerprint = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    private long nextId;
+    private long blockEnd = -1;
+
+    /**
+     * Moves the sequence past existing ids. Tables created before the switch from IDENTITY ids
+     * start the sequence at 1, below rows that already exist.
+     */
+    @PostConstruct
+    public void alignSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM documents", Long.class);
+        long current = nextSequenceValue();
+        // Hibernate treats the sequence's initial value specially, so never leave it reachable
+        long minimum = Math.max(maxId == null ? 0 : maxId, 0) + Document.ID_ALLOCATION_SIZE;
+        if (current < minimum) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + Document.ID_SEQUENCE + " RESTART WITH " + minimum);
+            logger.info("Moved {} to {} past existing document ids", Document.ID_SEQUENCE, minimum);
+        }
+    }
+
+    /**
+     * Assigns ids to {@code chunks}, inserts them in batches and returns the same list.
+     */
+    public List<Document> insertAll(List<Document> chunks) {
+        if (chunks.isEmpty()) {
+            return chunks;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Document chunk : chunks) {
+            chunk.setId(nextId());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, chunks, Math.max(batchSize, 1), (ps, chunk) -> {
+            ps.setLong(1, chunk.getId());
+            ps.setString(2, chunk.getContent());
+            ps.setString(3, chunk.getFileName());
+            ps.setObject(4, chunk.getChunkIndex(), Types.INTEGER);
+            ps.setString(5, chunk.getSourcePath());
+            ps.setObject(6, chunk.getFingerprint(), Types.BIGINT);
+            ps.setObject(7, chunk.getDuplicateOf(), Types.BIGINT);
+            ps.setBytes(8, chunk.getEmbedding());
+            ps.setTimestamp(9, now);
+            ps.setTimestamp(10, now);
+        });
+        return chunks;
+    }
+
+    /**
+     * Sets the fingerprint column of existing rows, keyed by chunk id.
+     */
+    public void updateFingerprints(Map<Long, Long> fingerprintsById) {
+        jdbcTemplate.batchUpdate(UPDATE_FINGERPRINT_SQL, fingerprintsById.entrySet(), Math.max(batchSize, 1), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    private synchronized long nextId() {
+        if (nextId > blockEnd) {
+            long hi = nextSequenceValue();
+            nextId = hi - Document.ID_ALLOCATION_SIZE + 1;
+            blockEnd = hi;
+        }
+        return nextId++;
+    }
+
+    private long nextSequenceValue() {
+        Long value = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + Document.ID_SEQUENCE, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("Sequence " + Document.ID_SEQUENCE + " returned no value");
+        }
+        return value;
+    }
+}
@@ -1,11 +1,14 @@
 package com.nitin.repository;
 
 import com.nitin.entity.Document;
+import com.nitin.index.MappedVectorStore;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,9 +17,48 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     // OPTIMIZED: Use exists instead of findBy to avoid loading data
     boolean existsByFileName(String fileName);
 
-    // OPTIMIZED: Custom query to fetch only documents with embeddings in batches
-    @Query("SELECT d FROM Document d WHERE d.embedding IS NOT NULL")
-    List<Document> findDocumentsWithEmbeddings(Pageable pageable);
+    // OPTIMIZED: Project only (id, embedding) and page by key, so no content or timestamps are moved
+    @Query("SELECT d.id AS id, d.embedding AS embedding FROM Document d " +
+            "WHERE d.embedding IS NOT NULL AND d.id > :afterId ORDER BY d.id")
+    List<EmbeddingView> findEmbeddingsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT d.id AS id, d.embedding AS embedding FROM Document d " +
+            "WHERE d.embedding IS NOT NULL AND d.id IN :ids")
+    List<EmbeddingView> findEmbeddingsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Linked near-duplicates are left out: they are reached through the chunk they duplicate
+    @Query("SELECT d.id AS id, d.content AS content FROM Document d " +
+            "WHERE d.content IS NOT NULL AND d.duplicateOf IS NULL AND d.id > :afterId ORDER BY d.id")
+    List<ContentView> findContentAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT d.id AS id, d.content AS content FROM Document d " +
+            "WHERE d.content IS NOT NULL AND d.fingerprint IS NULL AND d.duplicateOf IS NULL " +
+            "AND d.id > :afterId ORDER BY d.id")
+    List<ContentView> findUnfingerprintedContentAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT d.id AS id, d.fingerprint AS fingerprint, d.sourcePath AS sourcePath, d.fileName AS fileName " +
+            "FROM Document d WHERE d.fingerprint IS NOT NULL AND d.duplicateOf IS NULL AND d.id > :afterId ORDER BY d.id")
+    List<FingerprintView> findFingerprintsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    List<Document> findByDuplicateOfIn(Collection<Long> ids);
+
+    @Query("SELECT d.id FROM Document d WHERE d.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT d.id FROM Document d WHERE d.sourcePath IN :sourcePaths")
+    List<Long> findIdsBySourcePathIn(@Param("sourcePaths") Collection<String> sourcePaths);
+
+    // Chunks written before the file manifest existed carry only a bare file name; uploads carry "upload:<name>"
+    @Query("SELECT d.id FROM Document d WHERE d.sourcePath IS NULL AND d.fileName IN :fileNames")
+    List<Long> findLegacyIdsByFileNameIn(@Param("fileNames") Collection<String> fileNames);
+
+    // Same checksums as MappedVectorStore.idChecksums(); SUM is exact in H2, so MOD matches the Java side
+    @Query("SELECT COUNT(d.id) AS count, COALESCE(MAX(d.id), 0) AS maxId, " +
+            "COALESCE(MOD(SUM(MOD(d.id, " + MappedVectorStore.CHECKSUM_MODULUS + "L)), " + MappedVectorStore.CHECKSUM_MODULUS + "L), 0) AS idSum, " +
+            "COALESCE(MOD(SUM(MOD(d.id, " + MappedVectorStore.CHECKSUM_SQUARE_BASE + "L) * MOD(d.id, " + MappedVectorStore.CHECKSUM_SQUARE_BASE + "L)), " +
+            MappedVectorStore.CHECKSUM_MODULUS + "L), 0) AS idSquareSum " +
+            "FROM Document d WHERE d.embedding IS NOT NULL")
+    IdSummaryView summarizeEmbeddedIds();
 
     @Query("SELECT COUNT(DISTINCT d.fileName) FROM Document d")
     long countDistinctByFileName();
@@ -0,0 +1,10 @@
+package com.nitin.repository;
+
+/**
+ * Projection of a chunk row carrying only what scoring needs: its id and serialized embedding.
+ */
+public interface EmbeddingView {
+    Long getId();
+
+    byte[] getEmbedding();
+}
@@ -0,0 +1,15 @@
+package com.nitin.repository;
+
+/**
+ * Projection of a chunk row carrying its content fingerprint and origin, used to build the
+ * near-duplicate table.
+ */
+public interface FingerprintView {
+    Long getId();
+
+    Long getFingerprint();
+
+    String getSourcePath();
+
+    String getFileName();
+}
@@ -0,0 +1,15 @@
+package com.nitin.repository;
+
+/**
+ * Count and order-independent checksums of the embedded chunk ids, used to check a persistent
+ * vector index against the table without reading the embeddings.
+ */
+public interface IdSummaryView {
+    long getCount();
+
+    long getMaxId();
+
+    long getIdSum();
+
+    long getIdSquareSum();
+}
@@ -0,0 +1,20 @@
+package com.nitin.repository;
+
+import com.nitin.entity.IndexedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IndexedFileRepository extends JpaRepository<IndexedFile, Long> {
+
+    Optional<IndexedFile> findByPath(String path);
+
+    List<IndexedFile> findByPathIn(Collection<String> paths);
+
+    // Every manifest entry under a directory; the prefix must end with a separator
+    List<IndexedFile> findByPathStartingWith(String pathPrefix);
+}
@@ -0,0 +1,11 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+
+import java.util.List;
+
+/**
+ * Published after newly saved chunks have been committed and added to the vector index.
+ */
+public record ChunksIndexedEvent(List<Document> chunks) {
+}
@@ -0,0 +1,18 @@
+package com.nitin.service;
+
+import java.util.Set;
+
+/**
+ * Published after chunks have been removed from the database and the vector index.
+ * {@code allChunks} is set when the whole index was cleared, in which case {@code chunkIds} is empty.
+ */
+public record ChunksRemovedEvent(Set<Long> chunkIds, boolean allChunks) {
+
+    public static ChunksRemovedEvent of(Set<Long> chunkIds) {
+        return new ChunksRemovedEvent(Set.copyOf(chunkIds), false);
+    }
+
+    public static ChunksRemovedEvent all() {
+        return new ChunksRemovedEvent(Set.of(), true);
+    }
+}
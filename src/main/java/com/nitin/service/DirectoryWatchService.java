@@ -0,0 +1,230 @@
+package com.nitin.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps {@code rag.documents.directory} indexed without full rescans.
+ * <p>
+ * A {@link WatchService} is registered on every directory in the tree (it is not recursive).
+ * Create, modify and delete events are collected into a set of paths and flushed together once
+ * the tree has been quiet for {@code debounce-ms}, or at the latest after ten debounce periods
+ * of continuous activity, so an editor's save burst or a large copy becomes one incremental sync.
+ * <p>
+ * Watch events can be lost (queue overflow, changes while the application was down, network
+ * file systems), so the tree is also reconciled on startup, on overflow and every
+ * {@code reconcile-minutes} through the manifest-based directory re-index.
+ */
+@Service
+public class DirectoryWatchService {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatchService.class);
+
+    @Value("${rag.documents.watch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rag.documents.directory:}")
+    private String directory;
+
+    @Value("${rag.documents.watch.debounce-ms:2000}")
+    private long debounceMs;
+
+    @Value("${rag.documents.watch.reconcile-minutes:60}")
+    private long reconcileMinutes;
+
+    @Autowired
+    private DocumentService documentService;
+
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final AtomicLong syncedPaths = new AtomicLong();
+    private final AtomicLong reconciliations = new AtomicLong();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private ScheduledExecutorService reconciler;
+    private volatile int pendingCount;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            logger.warn("Directory watching enabled but {} is not a directory", directory);
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerTree(root);
+        } catch (IOException e) {
+            logger.error("Failed to start watching {}", root, e);
+            return;
+        }
+        logger.info("Watching {} directories under {} (debounce {}ms, reconcile every {} min)",
+                watchedDirectories.size(), root, debounceMs, reconcileMinutes);
+
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rag-dir-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Catch up on whatever changed while the application was down
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, Math.max(reconcileMinutes, 1), TimeUnit.MINUTES);
+
+        watcherThread = new Thread(this::watchLoop, "rag-dir-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close watch service", e);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled && watcherThread != null);
+        stats.put("watchedDirectories", watchedDirectories.size());
+        stats.put("pendingPaths", pendingCount);
+        stats.put("syncedPaths", syncedPaths.get());
+        stats.put("reconciliations", reconciliations.get());
+        return stats;
+    }
+
+    private void watchLoop() {
+        Set<Path> pending = new LinkedHashSet<>();
+        long firstEventAt = 0;
+        long lastEventAt = 0;
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(debounceMs, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                if (key != null) {
+                    if (pending.isEmpty()) {
+                        firstEventAt = now;
+                    }
+                    lastEventAt = now;
+                    collect(key, pending);
+                    pendingCount = pending.size();
+                }
+
+                boolean quiet = now - lastEventAt >= debounceMs;
+                boolean overdue = now - firstEventAt >= debounceMs * 10;
+                if (!pending.isEmpty() && (quiet || overdue)) {
+                    List<Path> batch = new ArrayList<>(pending);
+                    pending.clear();
+                    pendingCount = 0;
+                    sync(batch);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.info("Stopped watching {}", directory);
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> pending) {
+        Path dir = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Watch events overflowed, scheduling a full reconciliation");
+                reconciler.execute(this::reconcile);
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // Files created before the new directory was registered would otherwise be missed
+                try {
+                    registerTree(child);
+                    try (Stream<Path> files = Files.walk(child)) {
+                        files.filter(Files::isRegularFile).forEach(pending::add);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to watch new directory {}: {}", child, e.getMessage());
+                }
+            } else {
+                pending.add(child);
+            }
+        }
+        if (!key.reset()) {
+            // The directory itself is gone; its parent reports the delete
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void sync(List<Path> paths) {
+        try {
+            documentService.syncFiles(paths);
+            syncedPaths.addAndGet(paths.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Failed to sync {} changed paths, leaving them to the next reconciliation", paths.size(), e);
+        }
+    }
+
+    private void reconcile() {
+        try {
+            documentService.processStaticFiles(directory);
+            reconciliations.incrementAndGet();
+        } catch (Exception e) {
+            logger.error("Reconciliation of {} failed", directory, e);
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, dir);
+            }
+        }
+    }
+}
@@ -1,38 +1,66 @@
 package com.nitin.service;
 
+import com.nitin.config.CacheConfig;
 import com.nitin.entity.Document;
+import com.nitin.index.EmbeddingCodec;
+import com.nitin.index.RankFusion;
+import com.nitin.index.SearchHit;
+import com.nitin.index.VectorMath;
+import com.nitin.repository.DocumentBulkWriter;
 import com.nitin.repository.DocumentRepository;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.data.document.BlankDocumentException;
 
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
@@ -42,27 +70,87 @@ public class DocumentService {
     @Autowired
     private DocumentRepository documentRepository;
 
-    private final EmbeddingModel embeddingModel;
+    @Autowired
+    private VectorIndexService vectorIndexService;
+
+    @Autowired
+    private LexicalIndexService lexicalIndexService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${rag.retrieval.hybrid.candidates:20}")
+    private int hybridCandidates;
+
+    @Value("${rag.retrieval.hybrid.rrf-k:60}")
+    private int rrfRankConstant;
+
+    @Value("${rag.ingest.embed-batch-size:32}")
+    private int embedBatchSize;
+
+    @Value("${rag.ingest.parse-concurrency:8}")
+    private int ingestParseConcurrency;
+
+    @Value("${rag.ingest.embed-threads:0}")
+    private int ingestEmbedThreads;
+
+    @Value("${rag.ingest.queue-capacity:32}")
+    private int ingestQueueCapacity;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FileManifestService fileManifestService;
+
+    @Autowired
+    private DocumentBulkWriter documentBulkWriter;
+
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+
+    @Autowired
+    private EmbeddingRuntime embeddingRuntime;
+
+    @Autowired
+    private ExtractedTextCache extractedTextCache;
+
+    @Value("${rag.embedding.chunk-size:500}")
+    private int maxSegmentSize;
+
+    @Value("${rag.embedding.chunk-overlap:50}")
+    private int segmentOverlap;
+
     private final ApacheTikaDocumentParser documentParser;
-    private final DocumentSplitter documentSplitter;
+    private DocumentSplitter documentSplitter;
+    private final AutoDetectParser uploadParser;
 
     // Constants for batch processing
-    private static final int BATCH_SIZE = 1000;
     private static final int SEGMENT_BATCH_SIZE = 50;
+    private static final int DELETE_BATCH_SIZE = 500;
+    // Source path of uploaded chunks, so they are never mistaken for pre-manifest directory chunks
+    static final String UPLOAD_SOURCE_PREFIX = "upload:";
 
     // Cache for document count - Invalidated when documents are added/removed
     private final AtomicLong cachedDocumentCount = new AtomicLong(-1);
     private volatile long lastCountUpdate = 0;
     private static final long CACHE_VALIDITY_MS = 600000;
 
+    private volatile IngestionPipeline lastIngestion;
+    // Directory ingests and watcher syncs replace chunks per file, so only one may run at a time
+    private final ReentrantLock ingestLock = new ReentrantLock();
+
     public DocumentService() {
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
         this.documentParser = new ApacheTikaDocumentParser();
-        this.documentSplitter = DocumentSplitters.recursive(500, 50);
-        logger.info("DocumentService initialized with embedding model: {}", embeddingModel.getClass().getSimpleName());
+        this.uploadParser = new AutoDetectParser();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.documentSplitter = DocumentSplitters.recursive(maxSegmentSize, segmentOverlap);
+        logger.info("Splitting documents into segments of up to {} characters with {} overlap", maxSegmentSize, segmentOverlap);
     }
 
-    @Transactional
     @CacheEvict(value = "documentCount", allEntries = true)
     public void processUploadedFiles(MultipartFile[] files) throws IOException {
         //Invalidate Cache before processing
@@ -86,36 +174,140 @@ public class DocumentService {
                 continue;
             }
 
-            // Create temp file with proper extension
-            String extension = "";
-            int lastDotIndex = originalFilename.lastIndexOf('.');
-            if (lastDotIndex > 0) {
-                extension = originalFilename.substring(lastDotIndex);
-            }
-
-            Path tempFile = Files.createTempFile("uploaded_", extension);
             try {
-                // Copy uploaded file content to temp file
-                Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-                logger.debug("Created temp file: {} for uploaded file: {}", tempFile, originalFilename);
-
-                processFile(tempFile);
+                processUpload(file, Paths.get(originalFilename).getFileName().toString());
             } catch (Exception e) {
                 logger.error("Failed to process uploaded file: {}", originalFilename, e);
                 // Don't rethrow here to continue processing other files
-            } finally {
-                try {
-                    Files.deleteIfExists(tempFile);
-                } catch (IOException e) {
-                    logger.warn("Failed to delete temp file: {}", tempFile, e);
-                }
             }
         }
+
+        invalidateDocumentCountCache();
+    }
+
+    /**
+     * Parses an upload straight from the multipart stream and embeds segments as the streaming
+     * splitter emits them, so there is no temp-file copy and the full text is never held in
+     * memory. Segments match what the directory path's splitter produces for the same file.
+     * Each micro-batch commits on its own; if the upload fails part way, the batches already
+     * committed are deleted again, so the file is not left truncated and a retry indexes it.
+     */
+    private void processUpload(MultipartFile file, String fileName) throws IOException, TikaException, SAXException {
+        logger.debug("Processing upload: {} ({} bytes)", fileName, file.getSize());
+        if (documentRepository.existsByFileName(fileName)) {
+            logger.info("File already processed, skipping: {}", fileName);
+            return;
+        }
+
+        UploadBatcher batcher = new UploadBatcher(fileName);
+        StreamingSegmenter segmenter = new StreamingSegmenter(maxSegmentSize, segmentOverlap, batcher);
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        try (InputStream inputStream = TikaInputStream.get(file.getInputStream())) {
+            uploadParser.parse(inputStream, new BodyContentHandler(new SegmentingWriter(segmenter)), metadata, new ParseContext());
+            segmenter.finish();
+            batcher.flush();
+        } catch (Exception e) {
+            try {
+                batcher.discard();
+            } catch (RuntimeException cleanupFailure) {
+                e.addSuppressed(cleanupFailure);
+            }
+            throw e;
+        }
+
+        if (segmenter.segmentCount() == 0) {
+            logger.warn("Document appears to be blank or contains no extractable text: {}", fileName);
+        } else {
+            logger.info("Successfully processed upload: {} ({}/{} segments processed)",
+                    fileName, batcher.stored, segmenter.segmentCount());
+        }
+    }
+
+    // Collects emitted segments into embed-batch-size groups, then embeds and persists each group
+    private final class UploadBatcher implements Consumer<String> {
+        private final String fileName;
+        private final String sourcePath;
+        private final List<TextSegment> pending = new ArrayList<>();
+        private final List<Long> storedIds = new ArrayList<>();
+        private int nextChunkIndex;
+        private int stored;
+
+        UploadBatcher(String fileName) {
+            this.fileName = fileName;
+            this.sourcePath = UPLOAD_SOURCE_PREFIX + fileName;
+        }
+
+        @Override
+        public void accept(String segmentText) {
+            pending.add(TextSegment.from(segmentText));
+            if (pending.size() >= Math.max(embedBatchSize, 1)) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Document> chunks = embedSegmentBatch(fileName, sourcePath, pending, nextChunkIndex);
+            chunks.forEach(chunk -> chunk.setSourcePath(sourcePath));
+            if (!chunks.isEmpty()) {
+                persistChunks(chunks);
+                chunks.forEach(chunk -> storedIds.add(chunk.getId()));
+            }
+            nextChunkIndex += pending.size();
+            stored += chunks.size();
+            pending.clear();
+        }
+
+        // Deletes the batches committed so far; the existsByFileName check would otherwise skip every retry
+        void discard() {
+            if (storedIds.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> deleteChunks(storedIds));
+            logger.warn("Removed {} chunks of failed upload {}", storedIds.size(), fileName);
+            storedIds.clear();
+        }
+    }
+
+    /**
+     * Forwards the body text Tika writes to the segmenter. Wrapped in a BodyContentHandler, the
+     * same handler ApacheTikaDocumentParser collects into a string, so uploads see the same text.
+     */
+    private static final class SegmentingWriter extends Writer {
+        private final StreamingSegmenter segmenter;
+
+        SegmentingWriter(StreamingSegmenter segmenter) {
+            this.segmenter = segmenter;
+        }
+
+        @Override
+        public void write(char[] text, int start, int length) {
+            segmenter.append(text, start, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
     }
 
-    @Transactional
     @CacheEvict(value = "documentCount", allEntries = true)
     public void processStaticFiles(String directoryPath) throws IOException {
+        processStaticFiles(directoryPath, null);
+    }
+
+    /**
+     * Incrementally indexes a directory, reporting progress to and honouring cancellation of
+     * {@code job} when one is given.
+     */
+    @CacheEvict(value = "documentCount", allEntries = true)
+    public void processStaticFiles(String directoryPath, IndexingJob job) throws IOException {
         logger.info("Starting to process files in directory: {}", directoryPath);
 
         //Invalidate Cache before processing
@@ -126,38 +318,125 @@ public class DocumentService {
             throw new IOException("Directory does not exist or is not a directory: " + directoryPath);
         }
 
-        AtomicInteger totalFiles = new AtomicInteger(0);
-        AtomicInteger processedFiles = new AtomicInteger(0);
-
+        List<Path> filesToProcess;
         try (Stream<Path> paths = Files.walk(dir)) {
-            List<Path> filesToProcess = paths
+            filesToProcess = paths
                     .filter(Files::isRegularFile)
                     .filter(path -> isProcessableFile(path.toString()))
                     .toList();
+        }
 
-            totalFiles.set(filesToProcess.size());
-            logger.info("Found {} processable files", totalFiles.get());
-
-            if (filesToProcess.isEmpty()) {
-                logger.warn("No processable files found in directory: {}", directoryPath);
+        ingestLock.lock();
+        try {
+            if (job != null && job.isCancelRequested()) {
+                return;
+            }
+            // Cheap stat pass against the manifest; only new or touched files go on to hashing
+            FileManifestService.DirectoryChanges changes = fileManifestService.scan(dir, filesToProcess);
+            logger.info("Found {} processable files: {} unchanged, {} new or modified, {} deleted",
+                    filesToProcess.size(), changes.unchanged(), changes.candidates().size(), changes.deletedPaths().size());
+            removeSourcePaths(changes.deletedPaths());
+
+            if (changes.candidates().isEmpty()) {
+                logger.info("Directory is up to date: {}", directoryPath);
                 return;
             }
+            runPipeline(changes.candidates(), job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing directory: " + directoryPath, e);
+        } finally {
+            ingestLock.unlock();
+            invalidateDocumentCountCache();
+        }
+
+        logger.info("Completed processing files from directory: {}", directoryPath);
+    }
 
-            filesToProcess.forEach(path -> {
-                try {
-                    processFile(path);
-                    int processed = processedFiles.incrementAndGet();
-                    logger.info("Progress: {}/{} files processed", processed, totalFiles.get());
-                } catch (Exception e) {
-                    logger.error("Failed to process file: {}", path, e);
+    /**
+     * Applies a set of file-system changes from the directory watcher: existing files are
+     * re-indexed if the manifest says they changed, and the chunks of paths that no longer exist
+     * (including everything under a deleted directory) are removed.
+     */
+    @CacheEvict(value = "documentCount", allEntries = true)
+    public void syncFiles(Collection<Path> paths) throws InterruptedException {
+        List<Path> existing = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                if (isProcessableFile(path.toString())) {
+                    existing.add(path);
                 }
-            });
+            } else if (!Files.exists(path)) {
+                removed.addAll(fileManifestService.trackedPaths(path));
+            }
         }
 
-        logger.info("Completed processing {} files from directory: {}", processedFiles.get(), directoryPath);
+        ingestLock.lockInterruptibly();
+        try {
+            removeSourcePaths(removed);
+            List<Path> changed = fileManifestService.changedFiles(existing);
+            if (!changed.isEmpty()) {
+                logger.info("Re-indexing {} changed files", changed.size());
+                runPipeline(changed, null);
+            }
+        } finally {
+            ingestLock.unlock();
+            invalidateDocumentCountCache();
+        }
     }
 
-    private boolean isProcessableFile(String fileName) {
+    // Each persisted batch commits on its own, so a run is not one long transaction
+    private void runPipeline(List<Path> candidates, IndexingJob job) throws InterruptedException {
+        IngestionPipeline pipeline = new IngestionPipeline(new IngestionPipeline.Stages() {
+            @Override
+            public IngestionPipeline.ParsedFile parse(Path path) {
+                IngestionPipeline.SourceFile source = fileManifestService.describe(path, true);
+                if (source == null) {
+                    return null;
+                }
+                if (fileManifestService.isUnchanged(source)) {
+                    logger.debug("Content unchanged, skipping: {}", path);
+                    return null;
+                }
+                IngestionPipeline.ParsedFile parsed = parseFile(source);
+                if (parsed == null) {
+                    retireFileWithoutText(source);
+                }
+                return parsed;
+            }
+
+            @Override
+            public List<TextSegment> split(IngestionPipeline.ParsedFile file) {
+                return splitDocument(file);
+            }
+
+            @Override
+            public List<Document> embed(IngestionPipeline.SourceFile file, List<TextSegment> segments) {
+                return embedSegments(file, segments);
+            }
+
+            @Override
+            public void persist(List<IngestionPipeline.EmbeddedFile> files) {
+                replaceFileChunks(files);
+            }
+        }, ingestParseConcurrency, ingestEmbedThreads(),
+                SEGMENT_BATCH_SIZE, ingestQueueCapacity);
+
+        lastIngestion = pipeline;
+        if (job != null) {
+            job.attach(pipeline);
+        }
+        pipeline.run(candidates);
+    }
+
+    // More embed-stage threads than bulk embedding workers would only block waiting for one
+    private int ingestEmbedThreads() {
+        int bulkWorkers = embeddingRuntime.bulkWorkerCount();
+        return ingestEmbedThreads > 0 ? Math.min(ingestEmbedThreads, bulkWorkers) : bulkWorkers;
+    }
+
+    boolean isProcessableFile(String fileName) {
         if (fileName == null || fileName.trim().isEmpty()) {
             return false;
         }
@@ -170,173 +449,324 @@ public class DocumentService {
                 lowerCase.endsWith(".rtf");
     }
 
-    @Transactional
-    private void processFile(Path filePath) {
-        logger.debug("Processing file: {}", filePath);
-
-        try {
-            // Check if file exists and is readable
-            if (!Files.exists(filePath) || !Files.isReadable(filePath)) {
-                logger.error("File does not exist or is not readable: {}", filePath);
-                return;
-            }
+    // Parse stage: returns null when the file should be skipped
+    private IngestionPipeline.ParsedFile parseFile(IngestionPipeline.SourceFile source) {
+        Path filePath = source.path();
+        String fileName = source.fileName();
 
-            // Check file size
-            long fileSize = Files.size(filePath);
-            if (fileSize == 0) {
-                logger.warn("File is empty: {}", filePath);
-                return;
-            }
-            logger.debug("File size: {} bytes", fileSize);
-
-            // Check if file already exists in database - OPTIMIZED
-            String fileName = filePath.getFileName().toString();
-            if (documentRepository.existsByFileName(fileName)) {
-                logger.info("File already processed, skipping: {}", fileName);
-                return;
-            }
+        // Check if file exists and is readable
+        if (!Files.isReadable(filePath)) {
+            logger.error("File does not exist or is not readable: {}", filePath);
+            return null;
+        }
+        if (source.size() == 0) {
+            logger.warn("File is empty: {}", filePath);
+            return null;
+        }
+        logger.debug("File size: {} bytes", source.size());
 
-            try (InputStream inputStream = Files.newInputStream(filePath)) {
-                dev.langchain4j.data.document.Document document;
-
-                try {
-                    document = documentParser.parse(inputStream);
-                } catch (BlankDocumentException e) {
-                    logger.warn("Document appears to be blank or contains no extractable text: {} - {}",
-                            fileName, e.getMessage());
-                    return;
-                } catch (Exception e) {
-                    logger.error("Failed to parse document: {} - {}", fileName, e.getMessage());
-                    return;
-                }
+        // Same bytes as a file parsed before (here or elsewhere): reuse its text and skip Tika
+        String cachedText = extractedTextCache.get(source.contentHash());
+        if (cachedText != null) {
+            logger.debug("Using cached extracted text for {}", fileName);
+            return new IngestionPipeline.ParsedFile(source, dev.langchain4j.data.document.Document.from(cachedText));
+        }
 
-                // Validate document content
-                if (document == null || document.text() == null || document.text().trim().isEmpty()) {
-                    logger.warn("Document is null, empty or contains only whitespace: {}", fileName);
-                    return;
-                }
+        dev.langchain4j.data.document.Document document;
+        try (InputStream inputStream = Files.newInputStream(filePath)) {
+            document = documentParser.parse(inputStream);
+        } catch (BlankDocumentException e) {
+            logger.warn("Document appears to be blank or contains no extractable text: {} - {}",
+                    fileName, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to parse document: {} - {}", fileName, e.getMessage());
+            return null;
+        }
 
-                String documentText = document.text().trim();
-                logger.debug("Extracted text length: {} characters from file: {}", documentText.length(), fileName);
+        // Validate document content
+        if (document == null || document.text() == null || document.text().trim().isEmpty()) {
+            logger.warn("Document is null, empty or contains only whitespace: {}", fileName);
+            return null;
+        }
+        logger.debug("Extracted text length: {} characters from file: {}", document.text().trim().length(), fileName);
+        extractedTextCache.put(source.contentHash(), document.text());
+        return new IngestionPipeline.ParsedFile(source, document);
+    }
 
-                // Split document into segments
-                List<TextSegment> segments;
-                try {
-                    segments = documentSplitter.split(document);
-                } catch (Exception e) {
-                    logger.error("Failed to split document: {} - {}", fileName, e.getMessage());
-                    return;
-                }
+    // Split stage: returns an empty list when there is nothing to embed
+    private List<TextSegment> splitDocument(IngestionPipeline.ParsedFile parsed) {
+        List<TextSegment> segments;
+        try {
+            segments = documentSplitter.split(parsed.document());
+        } catch (Exception e) {
+            logger.error("Failed to split document: {} - {}", parsed.fileName(), e.getMessage());
+            return List.of();
+        }
 
-                if (segments == null || segments.isEmpty()) {
-                    logger.warn("Document splitting resulted in no segments: {}", fileName);
-                    return;
-                }
+        if (segments == null || segments.isEmpty()) {
+            logger.warn("Document splitting resulted in no segments: {}", parsed.fileName());
+            return List.of();
+        }
 
-                logger.debug("Split document {} into {} segments", fileName, segments.size());
+        logger.debug("Split document {} into {} segments", parsed.fileName(), segments.size());
+        return segments;
+    }
 
-                // OPTIMIZED: Batch process segments
-                List<Document> documentsToSave = new ArrayList<>();
-                int processedSegments = 0;
+    // Embed stage: one chunk entity per non-blank segment, keeping the segment's position as chunk index
+    private List<Document> embedSegments(IngestionPipeline.SourceFile file, List<TextSegment> segments) {
+        String fileName = file.fileName();
+        List<Document> chunks = embedSegmentBatch(fileName, FileManifestService.key(file.path()), segments, 0);
+        if (chunks.isEmpty()) {
+            logger.warn("No segments were successfully processed for file: {}", fileName);
+        } else {
+            long linked = chunks.stream().filter(chunk -> chunk.getDuplicateOf() != null).count();
+            logger.info("Successfully processed file: {} ({}/{} segments processed, {} near-duplicates linked)",
+                    fileName, chunks.size(), segments.size(), linked);
+        }
+        return chunks;
+    }
 
-                for (int i = 0; i < segments.size(); i++) {
-                    TextSegment segment = segments.get(i);
+    /**
+     * Segment i becomes chunk firstChunkIndex + i. A segment that nearly matches a stored chunk
+     * of another file is not embedded but linked to that chunk; {@code sourcePath} identifies the
+     * file for that check.
+     */
+    private List<Document> embedSegmentBatch(String fileName, String sourcePath, List<TextSegment> segments, int firstChunkIndex) {
+        int owner = NearDuplicateService.owner(sourcePath, fileName);
+        Document[] chunksByIndex = new Document[segments.size()];
+        long[] fingerprints = new long[segments.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<String> texts = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            TextSegment segment = segments.get(i);
+            if (segment == null || segment.text() == null || segment.text().trim().isEmpty()) {
+                logger.debug("Skipping empty segment {} in file {}", i, fileName);
+                texts.add(null);
+                continue;
+            }
+            String text = segment.text().trim();
+            texts.add(text);
+            fingerprints[i] = NearDuplicateService.fingerprint(text);
+            Long duplicateOf = nearDuplicateService.findDuplicate(fingerprints[i], owner);
+            if (duplicateOf != null) {
+                Document linked = new Document(text, fileName, null, firstChunkIndex + i);
+                linked.setFingerprint(fingerprints[i]);
+                linked.setDuplicateOf(duplicateOf);
+                chunksByIndex[i] = linked;
+            } else {
+                pending.add(i);
+            }
+        }
 
-                    if (segment == null || segment.text() == null || segment.text().trim().isEmpty()) {
-                        logger.debug("Skipping empty segment {} in file {}", i, fileName);
-                        continue;
-                    }
+        // Similar lengths share a micro-batch, so no batch waits on one long straggler
+        pending.sort(Comparator.comparingInt(i -> texts.get(i).length()));
 
+        int batchSize = Math.max(embedBatchSize, 1);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Integer> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            try {
+                List<Embedding> embeddings = embeddingRuntime.embedAll(
+                        batch.stream().map(i -> TextSegment.from(texts.get(i))).toList(), EmbeddingRuntime.Lane.BULK);
+                if (embeddings == null || embeddings.size() != batch.size()) {
+                    throw new IllegalStateException("expected " + batch.size() + " embeddings, got " +
+                            (embeddings == null ? 0 : embeddings.size()));
+                }
+                for (int j = 0; j < batch.size(); j++) {
+                    int i = batch.get(j);
+                    chunksByIndex[i] = toChunk(fileName, firstChunkIndex + i, texts.get(i), embeddings.get(j));
+                }
+            } catch (Exception e) {
+                // Isolate the failure: retry this batch one segment at a time and skip only the bad ones
+                logger.warn("Batch embedding of {} segments failed in file {}, retrying individually: {}",
+                        batch.size(), fileName, e.getMessage());
+                for (int i : batch) {
                     try {
-                        String segmentText = segment.text().trim();
-
-                        // Generate embedding
-                        Embedding embedding = embeddingModel.embed(segmentText).content();
-
-                        if (embedding == null || embedding.vector() == null || embedding.vector().length == 0) {
-                            logger.warn("Failed to generate embedding for segment {} in file {}", i, fileName);
-                            continue;
-                        }
-
-                        // Create document entity
-                        Document docEntity = new Document(
-                                segmentText,
-                                fileName,
-                                serializeEmbedding(embedding),
-                                i
-                        );
-
-                        documentsToSave.add(docEntity);
-                        processedSegments++;
-
-                        // Batch save every 50 documents
-                        if (documentsToSave.size() >= SEGMENT_BATCH_SIZE) {
-                            documentRepository.saveAll(documentsToSave);
-                            documentsToSave.clear();
-                            logger.debug("Batch saved {} segments for file: {}", SEGMENT_BATCH_SIZE, fileName);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Failed to process segment {} in file {}: {}", i, fileName, e.getMessage());
-                        // Continue processing other segments
+                        chunksByIndex[i] = toChunk(fileName, firstChunkIndex + i, texts.get(i), embeddingRuntime.embed(texts.get(i), EmbeddingRuntime.Lane.BULK));
+                    } catch (Exception segmentFailure) {
+                        logger.error("Failed to process segment {} in file {}: {}", i, fileName, segmentFailure.getMessage());
                     }
                 }
+            }
+        }
 
-                // Save remaining documents
-                if (!documentsToSave.isEmpty()) {
-                    documentRepository.saveAll(documentsToSave);
-                }
+        for (int i : pending) {
+            if (chunksByIndex[i] != null) {
+                chunksByIndex[i].setFingerprint(fingerprints[i]);
+            }
+        }
+        return Arrays.stream(chunksByIndex).filter(Objects::nonNull).toList();
+    }
 
-                if (processedSegments == 0) {
-                    logger.warn("No segments were successfully processed for file: {}", fileName);
-                } else {
-                    logger.info("Successfully processed file: {} ({}/{} segments processed)",
-                            fileName, processedSegments, segments.size());
-                }
+    /**
+     * Embeds chunks in place and clears their link; used when a linked near-duplicate has to
+     * carry its own embedding because the chunk it pointed at is gone.
+     */
+    private void embedInPlace(List<Document> chunks) {
+        int batchSize = Math.max(embedBatchSize, 1);
+        for (int from = 0; from < chunks.size(); from += batchSize) {
+            List<Document> batch = chunks.subList(from, Math.min(from + batchSize, chunks.size()));
+            List<Embedding> embeddings = embeddingRuntime.embedAll(
+                    batch.stream().map(chunk -> TextSegment.from(chunk.getContent())).toList(), EmbeddingRuntime.Lane.BULK);
+            for (int j = 0; j < batch.size(); j++) {
+                batch.get(j).setEmbedding(EmbeddingCodec.serialize(VectorMath.normalize(embeddings.get(j).vector())));
+                batch.get(j).setDuplicateOf(null);
             }
-        } catch (Exception e) {
-            logger.error("Error processing file: {} - {}", filePath, e.getMessage(), e);
-            // Don't rethrow to allow processing of other files to continue
         }
     }
 
-    private byte[] serializeEmbedding(Embedding embedding) {
-        if (embedding == null || embedding.vector() == null) {
-            throw new IllegalArgumentException("Embedding or vector cannot be null");
+    // A chunk linked at embed time may have lost its target since; those are embedded before insert
+    private void resolveLinks(List<Document> chunks) {
+        Set<Long> targets = chunks.stream()
+                .map(Document::getDuplicateOf)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (targets.isEmpty()) {
+            return;
+        }
+        Set<Long> existing = new HashSet<>(documentRepository.findExistingIds(targets));
+        List<Document> orphaned = chunks.stream()
+                .filter(chunk -> chunk.getDuplicateOf() != null && !existing.contains(chunk.getDuplicateOf()))
+                .toList();
+        if (!orphaned.isEmpty()) {
+            logger.debug("Embedding {} near-duplicates whose chunk was removed during ingest", orphaned.size());
+            embedInPlace(orphaned);
         }
+    }
 
-        float[] vector = embedding.vector();
-        if (vector.length == 0) {
-            throw new IllegalArgumentException("Embedding vector cannot be empty");
+    // Returns null for an empty embedding so the segment is skipped
+    private Document toChunk(String fileName, int index, String segmentText, Embedding embedding) {
+        if (embedding == null || embedding.vector() == null || embedding.vector().length == 0) {
+            logger.warn("Failed to generate embedding for segment {} in file {}", index, fileName);
+            return null;
         }
+        // Store unit-length vectors so scoring is a plain dot product
+        return new Document(
+                segmentText,
+                fileName,
+                EmbeddingCodec.serialize(VectorMath.normalize(embedding.vector())),
+                index
+        );
+    }
+
+    // Upload persistence: commits the batch (or joins the caller's transaction if there is one)
+    private void persistChunks(List<Document> chunks) {
+        transactionTemplate.executeWithoutResult(status -> {
+            resolveLinks(chunks);
+            vectorIndexService.indexAfterCommit(documentBulkWriter.insertAll(chunks));
+        });
+        logger.debug("Batch saved {} segments", chunks.size());
+    }
+
+    /**
+     * Persist stage for directory ingest. In one transaction per batch it deletes each file's
+     * previous chunks (and chunks from before the manifest that only carry its name), inserts the
+     * new ones and records the files in the manifest, so a file is never half replaced.
+     */
+    private void replaceFileChunks(List<IngestionPipeline.EmbeddedFile> files) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> sourcePaths = new HashSet<>();
+            Set<String> fileNames = new HashSet<>();
+            List<Document> chunks = new ArrayList<>();
+            for (IngestionPipeline.EmbeddedFile file : files) {
+                String sourcePath = FileManifestService.key(file.source().path());
+                sourcePaths.add(sourcePath);
+                fileNames.add(file.source().fileName());
+                for (Document chunk : file.chunks()) {
+                    chunk.setSourcePath(sourcePath);
+                    chunks.add(chunk);
+                }
+            }
 
-        ByteBuffer buffer = ByteBuffer.allocate(vector.length * 4);
+            Set<Long> staleIds = new HashSet<>(documentRepository.findIdsBySourcePathIn(sourcePaths));
+            staleIds.addAll(documentRepository.findLegacyIdsByFileNameIn(fileNames));
+            deleteChunks(staleIds);
 
-        for (float value : vector) {
-            buffer.putFloat(value);
+            resolveLinks(chunks);
+            vectorIndexService.indexAfterCommit(documentBulkWriter.insertAll(chunks));
+            fileManifestService.recordIndexed(files.stream().map(IngestionPipeline.EmbeddedFile::source).toList());
+        });
+        logger.debug("Batch saved {} segments from {} files", files.stream().mapToInt(f -> f.chunks().size()).sum(), files.size());
+    }
+
+    /**
+     * A file that now yields no text (emptied, blank or unparseable) keeps no chunks from its
+     * earlier content. Its new hash is recorded so later scans skip it until it changes again.
+     */
+    private void retireFileWithoutText(IngestionPipeline.SourceFile source) {
+        String sourcePath = FileManifestService.key(source.path());
+        int removed = transactionTemplate.execute(status -> {
+            Set<Long> staleIds = new HashSet<>(documentRepository.findIdsBySourcePathIn(List.of(sourcePath)));
+            staleIds.addAll(documentRepository.findLegacyIdsByFileNameIn(List.of(source.fileName())));
+            deleteChunks(staleIds);
+            fileManifestService.recordIndexed(List.of(source));
+            return staleIds.size();
+        });
+        if (removed > 0) {
+            logger.info("Removed {} chunks of {}, which no longer yields any text", removed, sourcePath);
         }
-        return buffer.array();
     }
 
-    private float[] deserializeEmbedding(byte[] bytes) {
-        if (bytes == null || bytes.length == 0) {
-            throw new IllegalArgumentException("Embedding bytes cannot be null or empty");
+    // Drops the chunks and manifest rows of files that no longer exist on disk
+    private void removeSourcePaths(List<String> sourcePaths) {
+        if (sourcePaths.isEmpty()) {
+            return;
         }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < sourcePaths.size(); from += DELETE_BATCH_SIZE) {
+                List<String> batch = sourcePaths.subList(from, Math.min(from + DELETE_BATCH_SIZE, sourcePaths.size()));
+                deleteChunks(documentRepository.findIdsBySourcePathIn(batch));
+                fileManifestService.forget(batch);
+            }
+        });
+        logger.info("Removed chunks of {} deleted files", sourcePaths.size());
+    }
 
-        if (bytes.length % 4 != 0) {
-            throw new IllegalArgumentException("Invalid embedding bytes length");
+    // Bulk delete by id; the resident indexes follow after commit
+    private void deleteChunks(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
         }
+        documentRepository.deleteAllByIdInBatch(ids);
+        vectorIndexService.removeAfterCommit(ids);
+        promoteOrphanedDuplicates(ids);
+    }
 
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        float[] vector = new float[bytes.length / 4];
+    /**
+     * Near-duplicates linked to deleted chunks would otherwise drop out of retrieval. For each
+     * deleted chunk the first surviving copy is embedded and indexed, and the other copies are
+     * re-linked to it.
+     */
+    private void promoteOrphanedDuplicates(Collection<Long> deletedIds) {
+        Map<Long, List<Document>> orphansByTarget = documentRepository.findByDuplicateOfIn(deletedIds).stream()
+                .sorted(Comparator.comparing(Document::getId))
+                .collect(Collectors.groupingBy(Document::getDuplicateOf, LinkedHashMap::new, Collectors.toList()));
+        if (orphansByTarget.isEmpty()) {
+            return;
+        }
 
-        for (int i = 0; i < vector.length; i++) {
-            vector[i] = buffer.getFloat();
+        List<Document> promoted = new ArrayList<>(orphansByTarget.size());
+        for (List<Document> copies : orphansByTarget.values()) {
+            Document canonical = copies.get(0);
+            promoted.add(canonical);
+            for (Document copy : copies.subList(1, copies.size())) {
+                copy.setDuplicateOf(canonical.getId());
+            }
         }
+        embedInPlace(promoted);
+        vectorIndexService.indexAfterCommit(promoted);
+        logger.info("Promoted {} near-duplicate chunks whose original was removed", promoted.size());
+    }
 
-        return vector;
+    /**
+     * Stage throughput and queue depths of the current or most recent directory ingest.
+     */
+    public Map<String, Object> getIngestionStats() {
+        IngestionPipeline pipeline = lastIngestion;
+        return pipeline != null ? pipeline.getStats() : Map.of();
     }
 
-    // Process documents in batches instead of loading all at once
+    // Score against the resident vector index, then load only the top-k rows
     public List<Document> findSimilarDocuments(String query, int limit) {
         logger.debug("Finding similar documents for query: {} (limit: {})", query, limit);
 
@@ -346,55 +776,23 @@ public class DocumentService {
         }
 
         try {
-            Embedding queryEmbedding = embeddingModel.embed(query.trim()).content();
-
-            if (queryEmbedding == null || queryEmbedding.vector() == null) {
-                logger.error("Failed to generate embedding for query: {}", query);
-                return List.of();
-            }
-
-            // Check if we have any documents first
-            long totalDocs = documentRepository.count();
-            if (totalDocs == 0) {
-                logger.warn("No documents found in database");
+            if (vectorIndexService.size() == 0) {
+                logger.warn("No documents found in vector index");
                 return List.of();
             }
 
-            logger.debug("Processing {} documents in batches", totalDocs);
-
-            List<ScoredDocument> scoredDocuments = new ArrayList<>();
-            int page = 0;
-
-            // Process documents in batches to avoid loading all into memory
-            while (true) {
-                Pageable pageable = PageRequest.of(page, BATCH_SIZE);
-                List<Document> batch = documentRepository.findDocumentsWithEmbeddings(pageable);
-
-                if (batch.isEmpty()) {
-                    break;
-                }
-
-                for (Document doc : batch) {
-                    if (doc.getEmbedding() != null && doc.getEmbedding().length > 0) {
-                        try {
-                            double similarity = calculateSimilarity(queryEmbedding, deserializeEmbedding(doc.getEmbedding()));
-                            scoredDocuments.add(new ScoredDocument(doc, similarity));
-                        } catch (Exception e) {
-                            logger.error("Error calculating similarity for document {}", doc.getId(), e);
-                        }
-                    }
-                }
-
-                page++;
-                logger.debug("Processed batch {} ({} documents)", page, batch.size());
+            float[] queryVector = embedQuery(query);
+            List<SearchHit> hits;
+            if (lexicalIndexService.isEnabled()) {
+                // Hybrid: fuse vector and BM25 rankings so exact terms are not lost to embedding blur
+                int candidates = Math.max(limit, hybridCandidates);
+                hits = RankFusion.reciprocalRank(limit, rrfRankConstant,
+                        vectorIndexService.search(queryVector, candidates),
+                        lexicalIndexService.search(query, candidates));
+            } else {
+                hits = vectorIndexService.search(queryVector, limit);
             }
-
-            // Sort by similarity and return top results
-            List<Document> similarDocs = scoredDocuments.stream()
-                    .sorted((d1, d2) -> Double.compare(d2.score, d1.score)) // Descending order
-                    .limit(limit)
-                    .map(sd -> sd.document)
-                    .toList();
+            List<Document> similarDocs = loadInRankOrder(hits);
 
             logger.debug("Found {} similar documents", similarDocs.size());
             return similarDocs;
@@ -404,41 +802,139 @@ public class DocumentService {
         }
     }
 
-    // Helper class for scoring documents
-    private static class ScoredDocument {
-        final Document document;
-        final double score;
+    /**
+     * Retrieves the top {@code limit} chunks for every query in one scoring pass over the index.
+     * {@code queryVectors} must come from {@link #embedQueries(List)} in the same order; entry
+     * {@code i} of the result belongs to {@code queries.get(i)}.
+     */
+    public List<List<Document>> findSimilarDocuments(List<String> queries, List<float[]> queryVectors, int limit) {
+        List<List<Document>> results = new ArrayList<>(queries.size());
+        if (queries.isEmpty() || vectorIndexService.size() == 0) {
+            queries.forEach(query -> results.add(List.of()));
+            return results;
+        }
+
+        boolean hybrid = lexicalIndexService.isEnabled();
+        int candidates = hybrid ? Math.max(limit, hybridCandidates) : limit;
+        List<List<SearchHit>> vectorHits = vectorIndexService.searchBatch(queryVectors.toArray(new float[0][]), candidates);
+
+        List<List<SearchHit>> hitsPerQuery = new ArrayList<>(queries.size());
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < queries.size(); i++) {
+            List<SearchHit> hits = hybrid
+                    ? RankFusion.reciprocalRank(limit, rrfRankConstant, vectorHits.get(i),
+                            lexicalIndexService.search(queries.get(i), candidates))
+                    : vectorHits.get(i);
+            hitsPerQuery.add(hits);
+            hits.forEach(hit -> ids.add(hit.id()));
+        }
 
-        ScoredDocument(Document document, double score) {
-            this.document = document;
-            this.score = score;
+        // One round-trip for the union of all winners, then split back out per query
+        Map<Long, Document> documentsById = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        for (List<SearchHit> hits : hitsPerQuery) {
+            results.add(hits.stream()
+                    .map(hit -> documentsById.get(hit.id()))
+                    .filter(Objects::nonNull)
+                    .toList());
         }
+        return results;
     }
 
-    private double calculateSimilarity(Embedding e1, float[] e2Vector) {
-        if (e1 == null || e1.vector() == null || e2Vector == null) {
-            throw new IllegalArgumentException("Embeddings cannot be null");
+    /**
+     * Embeds a query through the bounded query-embedding cache, so a repeated question
+     * (ignoring case and whitespace) skips model inference. Returns a unit-length vector.
+     */
+    public float[] embedQuery(String query) {
+        Cache cache = cacheManager.getCache(CacheConfig.QUERY_EMBEDDINGS);
+        if (cache == null) {
+            return computeQueryEmbedding(query);
         }
+        return cache.get(normalizeQueryKey(query), () -> computeQueryEmbedding(query));
+    }
 
-        float[] e1Vector = e1.vector();
+    /**
+     * Embeds many queries with one model call for the ones not already in the query-embedding
+     * cache, and caches the new vectors. Returns unit-length vectors in input order.
+     */
+    public List<float[]> embedQueries(List<String> queries) {
+        Cache cache = cacheManager.getCache(CacheConfig.QUERY_EMBEDDINGS);
+        Map<String, float[]> vectorsByKey = new LinkedHashMap<>();
+        Map<String, String> missesByKey = new LinkedHashMap<>();
+        for (String query : queries) {
+            String key = normalizeQueryKey(query);
+            float[] cached = cache != null ? cache.get(key, float[].class) : null;
+            if (cached != null) {
+                vectorsByKey.put(key, cached);
+            } else {
+                missesByKey.putIfAbsent(key, query.trim());
+            }
+        }
 
-        if (e1Vector.length != e2Vector.length) {
-            throw new IllegalArgumentException("Vector dimensions don't match: " +
-                    e1Vector.length + " vs " + e2Vector.length);
+        if (!missesByKey.isEmpty()) {
+            List<TextSegment> segments = missesByKey.values().stream().map(TextSegment::from).toList();
+            List<Embedding> embeddings = embeddingRuntime.embedAll(segments, EmbeddingRuntime.Lane.INTERACTIVE);
+            if (embeddings == null || embeddings.size() != segments.size()) {
+                throw new IllegalStateException("Embedding model returned " +
+                        (embeddings == null ? 0 : embeddings.size()) + " vectors for " + segments.size() + " queries");
+            }
+            int i = 0;
+            for (String key : missesByKey.keySet()) {
+                Embedding embedding = embeddings.get(i++);
+                if (embedding == null || embedding.vector() == null || embedding.vector().length == 0) {
+                    throw new IllegalStateException("Failed to generate embedding for query: " + missesByKey.get(key));
+                }
+                float[] vector = VectorMath.normalize(embedding.vector());
+                vectorsByKey.put(key, vector);
+                if (cache != null) {
+                    cache.put(key, vector);
+                }
+            }
+        }
+
+        return queries.stream().map(query -> vectorsByKey.get(normalizeQueryKey(query))).toList();
+    }
+
+    private float[] computeQueryEmbedding(String query) {
+        Embedding embedding = embeddingRuntime.embed(query.trim(), EmbeddingRuntime.Lane.INTERACTIVE);
+        if (embedding == null || embedding.vector() == null || embedding.vector().length == 0) {
+            // Thrown rather than returned so that a failed inference is never cached
+            throw new IllegalStateException("Failed to generate embedding for query: " + query);
         }
+        return VectorMath.normalize(embedding.vector());
+    }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+    private static String normalizeQueryKey(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> getQueryEmbeddingCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (cacheManager.getCache(CacheConfig.QUERY_EMBEDDINGS) instanceof CaffeineCache caffeineCache) {
+            CacheStats cacheStats = caffeineCache.getNativeCache().stats();
+            stats.put("size", caffeineCache.getNativeCache().estimatedSize());
+            stats.put("hits", cacheStats.hitCount());
+            stats.put("misses", cacheStats.missCount());
+            stats.put("hitRate", cacheStats.hitRate());
+            stats.put("evictions", cacheStats.evictionCount());
+        }
+        return stats;
+    }
 
-        for (int i = 0; i < e1Vector.length; i++) {
-            dotProduct += e1Vector[i] * e2Vector[i];
-            normA += Math.pow(e1Vector[i], 2);
-            normB += Math.pow(e2Vector[i], 2);
+    // Fetch the winning rows in one round-trip and restore the ranking order
+    private List<Document> loadInRankOrder(List<SearchHit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
         }
 
-        double denominator = Math.sqrt(normA) * Math.sqrt(normB);
-        return denominator == 0 ? 0 : dotProduct / denominator;
+        List<Long> ids = hits.stream().map(SearchHit::id).toList();
+        Map<Long, Document> documentsById = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+
+        return ids.stream()
+                .map(documentsById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     // Utility methods
@@ -472,10 +968,10 @@ public class DocumentService {
         // Invalidate cache before clearing
         invalidateDocumentCountCache();
 
-        // Clear database
+        // Clear database, file manifest and the resident vector index
         documentRepository.deleteAll();
-        // Clear vector index if you're using one
-        // vectorService.clearIndex();
+        fileManifestService.clear();
+        vectorIndexService.clear();
         logger.info("Index cleared and cache invalidated");
     }
 }
\ No newline at end of file
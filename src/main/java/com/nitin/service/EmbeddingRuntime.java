@@ -0,0 +1,235 @@
+package com.nitin.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs every embedding model call on a fixed set of worker threads with two priority lanes.
+ * <p>
+ * Workers always take queued {@link Lane#INTERACTIVE} work (query embeddings) before
+ * {@link Lane#BULK} work (ingest batches), and {@code interactive-workers} of them never take
+ * bulk work at all, so a query does not wait behind an ingest batch that is already running.
+ * The number of workers bounds how many model calls run at once; each {@code embedAll} call
+ * additionally spreads its texts over the model's own executor.
+ * <p>
+ * Queue wait and run time are recorded per lane.
+ */
+@Service
+public class EmbeddingRuntime {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingRuntime.class);
+
+    public enum Lane {
+        INTERACTIVE,
+        BULK
+    }
+
+    @Value("${rag.embedding.workers:4}")
+    private int workerCount;
+
+    @Value("${rag.embedding.interactive-workers:1}")
+    private int interactiveWorkerCount;
+
+    private final EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<Lane, Deque<Task<?>>> queues = new EnumMap<>(Lane.class);
+    private final Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private int bulkWorkerCount;
+
+    private static final class Task<T> {
+        final Lane lane;
+        final Supplier<T> call;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        Task(Lane lane, Supplier<T> call) {
+            this.lane = lane;
+            this.call = call;
+        }
+    }
+
+    private static final class LaneStats {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong queueWaitNanos = new AtomicLong();
+        final AtomicLong maxQueueWaitNanos = new AtomicLong();
+        final AtomicLong runNanos = new AtomicLong();
+    }
+
+    public EmbeddingRuntime() {
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+            stats.put(lane, new LaneStats());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        int total = Math.max(workerCount, 1);
+        // At least one worker must be free to take bulk work
+        int reserved = Math.max(0, Math.min(interactiveWorkerCount, total - 1));
+        bulkWorkerCount = total - reserved;
+        for (int i = 0; i < total; i++) {
+            boolean interactiveOnly = i < reserved;
+            Thread worker = new Thread(() -> workLoop(interactiveOnly),
+                    interactiveOnly ? "rag-embed-interactive-" + i : "rag-embed-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("Embedding runtime started with {} workers ({} reserved for queries), model: {}",
+                total, reserved, embeddingModel.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    public Embedding embed(String text, Lane lane) {
+        return submit(lane, () -> embeddingModel.embed(text).content());
+    }
+
+    public List<Embedding> embedAll(List<TextSegment> segments, Lane lane) {
+        return submit(lane, () -> embeddingModel.embedAll(segments).content());
+    }
+
+    /**
+     * Workers that take bulk work, i.e. how many ingest embedding calls can run at once.
+     */
+    public int bulkWorkerCount() {
+        return bulkWorkerCount;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workers", workers.size());
+        result.put("bulkWorkers", bulkWorkerCount);
+        for (Lane lane : Lane.values()) {
+            LaneStats laneStats = stats.get(lane);
+            long completed = laneStats.completed.get();
+            long finished = completed + laneStats.failed.get();
+            Map<String, Object> laneResult = new LinkedHashMap<>();
+            laneResult.put("queued", queueDepth(lane));
+            laneResult.put("submitted", laneStats.submitted.get());
+            laneResult.put("completed", completed);
+            laneResult.put("failed", laneStats.failed.get());
+            laneResult.put("avgQueueWaitMs", finished > 0 ? laneStats.queueWaitNanos.get() / 1e6 / finished : 0.0);
+            laneResult.put("maxQueueWaitMs", laneStats.maxQueueWaitNanos.get() / 1e6);
+            laneResult.put("avgRunMs", finished > 0 ? laneStats.runNanos.get() / 1e6 / finished : 0.0);
+            result.put(lane.name().toLowerCase(), laneResult);
+        }
+        return result;
+    }
+
+    private <T> T submit(Lane lane, Supplier<T> call) {
+        Task<T> task = new Task<>(lane, call);
+        stats.get(lane).submitted.incrementAndGet();
+        lock.lock();
+        try {
+            queues.get(lane).addLast(task);
+            // Reserved workers ignore bulk work, so wake everyone rather than risk waking only them
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return task.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lock.lock();
+            try {
+                queues.get(lane).remove(task);
+            } finally {
+                lock.unlock();
+            }
+            throw new IllegalStateException("Interrupted while waiting for an embedding", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Embedding failed", e.getCause());
+        }
+    }
+
+    private void workLoop(boolean interactiveOnly) {
+        try {
+            while (true) {
+                run(next(interactiveOnly));
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Embedding worker {} stopped", Thread.currentThread().getName());
+        }
+    }
+
+    private Task<?> next(boolean interactiveOnly) throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Task<?> task = queues.get(Lane.INTERACTIVE).pollFirst();
+                if (task == null && !interactiveOnly) {
+                    task = queues.get(Lane.BULK).pollFirst();
+                }
+                if (task != null) {
+                    return task;
+                }
+                workAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        LaneStats laneStats = stats.get(task.lane);
+        long startedAt = System.nanoTime();
+        long waited = startedAt - task.enqueuedAt;
+        laneStats.queueWaitNanos.addAndGet(waited);
+        laneStats.maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+        try {
+            task.result.complete(task.call.get());
+            laneStats.completed.incrementAndGet();
+        } catch (Throwable t) {
+            task.result.completeExceptionally(t);
+            laneStats.failed.incrementAndGet();
+        } finally {
+            laneStats.runNanos.addAndGet(System.nanoTime() - startedAt);
+        }
+    }
+
+    private int queueDepth(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
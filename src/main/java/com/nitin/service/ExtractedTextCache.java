@@ -0,0 +1,219 @@
+package com.nitin.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of text extracted by Tika, keyed by the SHA-256 of the source file, so re-indexing
+ * a file whose bytes have not changed (after a clear, or to try other chunking settings) only
+ * splits and embeds.
+ * <p>
+ * Each entry is one gzip file under {@code rag.text-cache.directory}. The total size is capped at
+ * {@code max-size-mb}; least recently used entries are evicted first. A hit touches the file's
+ * modification time, so the LRU order survives restarts.
+ */
+@Service
+public class ExtractedTextCache {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractedTextCache.class);
+
+    private static final String SUFFIX = ".txt.gz";
+
+    @Value("${rag.text-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.text-cache.directory:./data/text-cache}")
+    private String directory;
+
+    @Value("${rag.text-cache.max-size-mb:1024}")
+    private long maxSizeMb;
+
+    private Path root;
+    // Entry sizes in access order, eldest first; guarded by lock
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory);
+        try {
+            Files.createDirectories(root);
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(root)) {
+                files = paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList();
+            }
+            List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>(files.size());
+            for (Path file : files) {
+                found.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+            found.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+            for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+                String name = entry.getKey().getFileName().toString();
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), entry.getValue().size());
+                totalBytes += entry.getValue().size();
+            }
+            evictOverCap();
+            logger.info("Extracted-text cache at {} holds {} entries ({} KB)", root, entries.size(), totalBytes / 1024);
+        } catch (IOException e) {
+            logger.error("Failed to open extracted-text cache at {}, continuing without it", root, e);
+            enabled = false;
+        }
+    }
+
+    /**
+     * Cached text for a content hash, or null on a miss.
+     */
+    public String get(String contentHash) {
+        if (!enabled || contentHash == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (entries.get(contentHash) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Path file = pathFor(contentHash);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return text;
+        } catch (NoSuchFileException e) {
+            // Evicted between the lookup and the read
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable cache entry {}: {}", file, e.getMessage());
+            remove(contentHash);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String contentHash, String text) {
+        if (!enabled || contentHash == null || text == null) {
+            return;
+        }
+        Path file = pathFor(contentHash);
+        try {
+            Files.createDirectories(file.getParent());
+            // Write aside and move into place, so a reader never sees a partial entry
+            Path temp = Files.createTempFile(file.getParent(), contentHash, ".tmp");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+                     Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                    writer.write(text);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            long size = Files.size(file);
+
+            lock.lock();
+            try {
+                Long previous = entries.put(contentHash, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evictOverCap();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to cache extracted text for {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        lock.lock();
+        try {
+            stats.put("entries", entries.size());
+            stats.put("sizeBytes", totalBytes);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxSizeBytes", maxSizeMb * 1024 * 1024);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    // Caller holds the lock (or is still initializing)
+    private void evictOverCap() {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(pathFor(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("Failed to delete evicted cache entry {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void remove(String contentHash) {
+        lock.lock();
+        try {
+            Long size = entries.remove(contentHash);
+            if (size != null) {
+                totalBytes -= size;
+            }
+            Files.deleteIfExists(pathFor(contentHash));
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache entry {}: {}", contentHash, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Two-character fan-out keeps directories small on large corpora
+    private Path pathFor(String contentHash) {
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash + SUFFIX);
+    }
+}
@@ -0,0 +1,197 @@
+package com.nitin.service;
+
+import com.nitin.entity.IndexedFile;
+import com.nitin.repository.IndexedFileRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks which files under an indexed directory have already been embedded, by full path, so a
+ * re-index only touches what changed.
+ * <p>
+ * Change detection is two-tier: a file whose size and modification time match its manifest row is
+ * skipped without being opened; otherwise its SHA-256 is compared with the recorded hash, and
+ * only a different hash sends it back through parsing and embedding.
+ */
+@Service
+public class FileManifestService {
+    private static final Logger logger = LoggerFactory.getLogger(FileManifestService.class);
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private IndexedFileRepository indexedFileRepository;
+
+    /**
+     * Result of comparing a directory walk with the manifest: the files that need hashing, and
+     * the manifest paths under the directory whose files are gone.
+     */
+    public record DirectoryChanges(List<Path> candidates, List<String> deletedPaths, int unchanged) {
+    }
+
+    public DirectoryChanges scan(Path directory, List<Path> files) {
+        String prefix = key(directory) + directory.getFileSystem().getSeparator();
+        Map<String, IndexedFile> known = indexedFileRepository.findByPathStartingWith(prefix).stream()
+                .collect(Collectors.toMap(IndexedFile::getPath, Function.identity()));
+
+        List<Path> candidates = new ArrayList<>();
+        int unchanged = 0;
+        for (Path file : files) {
+            IndexedFile entry = known.remove(key(file));
+            if (entry != null && statMatches(file, entry)) {
+                unchanged++;
+            } else {
+                candidates.add(file);
+            }
+        }
+        // Whatever is left in the manifest was not seen on disk
+        return new DirectoryChanges(candidates, new ArrayList<>(known.keySet()), unchanged);
+    }
+
+    /**
+     * The subset of {@code files} that are not in the manifest or fail the size and mtime check.
+     */
+    public List<Path> changedFiles(List<Path> files) {
+        if (files.isEmpty()) {
+            return List.of();
+        }
+        Map<String, IndexedFile> known = indexedFileRepository.findByPathIn(files.stream().map(FileManifestService::key).toList())
+                .stream()
+                .collect(Collectors.toMap(IndexedFile::getPath, Function.identity()));
+        return files.stream()
+                .filter(file -> {
+                    IndexedFile entry = known.get(key(file));
+                    return entry == null || !statMatches(file, entry);
+                })
+                .toList();
+    }
+
+    /**
+     * Manifest paths at or below {@code path}, so a deleted directory resolves to all of its files.
+     */
+    public List<String> trackedPaths(Path path) {
+        String key = key(path);
+        List<String> paths = new ArrayList<>();
+        indexedFileRepository.findByPath(key).ifPresent(entry -> paths.add(entry.getPath()));
+        indexedFileRepository.findByPathStartingWith(key + path.getFileSystem().getSeparator())
+                .forEach(entry -> paths.add(entry.getPath()));
+        return paths;
+    }
+
+    /**
+     * Reads size, modification time and, if asked, the content hash of a file. Returns null when
+     * the file cannot be read.
+     */
+    IngestionPipeline.SourceFile describe(Path file, boolean withHash) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new IngestionPipeline.SourceFile(file, file.getFileName().toString(), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), withHash ? sha256(file) : null);
+        } catch (IOException e) {
+            logger.error("Failed to read file: {} - {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * True when the manifest already holds this content for the path. The new size and
+     * modification time are recorded so the next scan skips the file on the stat check alone.
+     */
+    boolean isUnchanged(IngestionPipeline.SourceFile source) {
+        if (source.contentHash() == null) {
+            return false;
+        }
+        return indexedFileRepository.findByPath(key(source.path()))
+                .filter(entry -> source.contentHash().equals(entry.getContentHash()))
+                .map(entry -> {
+                    entry.setSize(source.size());
+                    entry.setLastModified(source.lastModified());
+                    indexedFileRepository.save(entry);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Upserts manifest rows for files whose chunks were just written; joins the caller's transaction.
+     */
+    void recordIndexed(Collection<IngestionPipeline.SourceFile> sources) {
+        Map<String, IndexedFile> existing = indexedFileRepository
+                .findByPathIn(sources.stream().map(source -> key(source.path())).toList()).stream()
+                .collect(Collectors.toMap(IndexedFile::getPath, Function.identity()));
+
+        List<IndexedFile> entries = new ArrayList<>(sources.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (IngestionPipeline.SourceFile source : sources) {
+            IndexedFile entry = existing.computeIfAbsent(key(source.path()), IndexedFile::new);
+            entry.setSize(source.size());
+            entry.setLastModified(source.lastModified());
+            entry.setContentHash(source.contentHash());
+            entry.setIndexedAt(now);
+            entries.add(entry);
+        }
+        indexedFileRepository.saveAll(entries);
+    }
+
+    public void forget(Collection<String> paths) {
+        if (!paths.isEmpty()) {
+            indexedFileRepository.deleteAllInBatch(indexedFileRepository.findByPathIn(paths));
+        }
+    }
+
+    public void clear() {
+        indexedFileRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Normalized absolute path used as the manifest key and as {@code Document.sourcePath}.
+     */
+    public static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static boolean statMatches(Path file, IndexedFile entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() == entry.getSize()
+                    && attributes.lastModifiedTime().toMillis() == entry.getLastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
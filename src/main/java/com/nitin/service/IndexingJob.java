@@ -0,0 +1,111 @@
+package com.nitin.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One asynchronous directory ingest. Progress is read live from the pipeline that runs it.
+ */
+public class IndexingJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String id;
+    private final String directoryPath;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    private volatile IngestionPipeline pipeline;
+
+    IndexingJob(String id, String directoryPath) {
+        this.id = id;
+        this.directoryPath = directoryPath;
+    }
+
+    public String getId() { return id; }
+
+    public String getDirectoryPath() { return directoryPath; }
+
+    public State getState() { return state; }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.CANCELLED || state == State.FAILED;
+    }
+
+    public boolean isCancelRequested() { return cancelRequested; }
+
+    /**
+     * Requests cancellation; a queued job never starts, a running one stops after its in-flight files.
+     */
+    public void cancel() {
+        cancelRequested = true;
+        IngestionPipeline current = pipeline;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void markFinished(State finalState, String failure) {
+        error = failure;
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    // A cancel that raced with pipeline creation is applied here
+    void attach(IngestionPipeline ingestionPipeline) {
+        pipeline = ingestionPipeline;
+        if (cancelRequested) {
+            ingestionPipeline.cancel();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("id", id);
+        status.put("directoryPath", directoryPath);
+        status.put("state", state);
+        status.put("submittedAt", submittedAt.toString());
+        status.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        status.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+
+        IngestionPipeline current = pipeline;
+        int totalFiles = current != null ? current.totalFiles() : 0;
+        int filesDone = current != null ? current.filesCompleted() : 0;
+        long segments = current != null ? current.chunksPersisted() : 0;
+        double elapsed = current != null ? current.elapsedSeconds() : 0;
+        status.put("filesChanged", totalFiles);
+        status.put("filesDone", filesDone);
+        status.put("segmentsIndexed", segments);
+        status.put("segmentsPerSecond", elapsed > 0 ? segments / elapsed : 0.0);
+
+        // Extrapolate from the file rate so far; unknown until the first file finishes
+        Long etaSeconds = null;
+        if (state == State.RUNNING && filesDone > 0 && elapsed > 0) {
+            etaSeconds = Math.round((totalFiles - filesDone) * elapsed / filesDone);
+        }
+        status.put("etaSeconds", etaSeconds);
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            status.put("elapsedSeconds", Duration.between(startedAt, end).toSeconds());
+        }
+        status.put("error", error);
+        return status;
+    }
+}
@@ -0,0 +1,114 @@
+package com.nitin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs directory ingests in the background on the application task executor ({@code rag-async-}
+ * threads) so the HTTP request returns a job id straight away.
+ * <p>
+ * The pipeline commits each batch of whole files and records them in the file manifest as it
+ * goes, so a cancelled or failed job loses no finished work. Submitting the same directory again
+ * resumes where it stopped.
+ */
+@Service
+public class IndexingJobService {
+    private static final Logger logger = LoggerFactory.getLogger(IndexingJobService.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    @Value("${rag.index-jobs.history:100}")
+    private int history;
+
+    // Insertion ordered, so the oldest finished jobs are dropped first
+    private final Map<String, IndexingJob> jobs = new LinkedHashMap<>();
+
+    public IndexingJob submit(String directoryPath) throws IOException {
+        if (!Files.isDirectory(Paths.get(directoryPath))) {
+            throw new IOException("Directory does not exist or is not a directory: " + directoryPath);
+        }
+
+        IndexingJob job = new IndexingJob(UUID.randomUUID().toString(), directoryPath);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            evictFinished();
+        }
+
+        try {
+            taskExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            job.markFinished(IndexingJob.State.FAILED, "Indexing queue is full");
+            throw new IllegalStateException("Indexing queue is full, try again later", e);
+        }
+        logger.info("Submitted indexing job {} for {}", job.getId(), directoryPath);
+        return job;
+    }
+
+    public IndexingJob get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<IndexingJob> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    public IndexingJob cancel(String id) {
+        IndexingJob job = get(id);
+        if (job != null && !job.isFinished()) {
+            job.cancel();
+            logger.info("Cancellation requested for indexing job {}", id);
+        }
+        return job;
+    }
+
+    private void run(IndexingJob job) {
+        if (job.isCancelRequested()) {
+            job.markFinished(IndexingJob.State.CANCELLED, null);
+            return;
+        }
+
+        job.markRunning();
+        try {
+            documentService.processStaticFiles(job.getDirectoryPath(), job);
+            job.markFinished(job.isCancelRequested() ? IndexingJob.State.CANCELLED : IndexingJob.State.COMPLETED, null);
+            logger.info("Indexing job {} finished: {}", job.getId(), job.getState());
+        } catch (Exception e) {
+            job.markFinished(IndexingJob.State.FAILED, e.getMessage());
+            logger.error("Indexing job {} failed", job.getId(), e);
+        }
+    }
+
+    private void evictFinished() {
+        Iterator<IndexingJob> iterator = jobs.values().iterator();
+        while (jobs.size() > history && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs one directory ingest as four stages joined by bounded queues:
+ * <pre>
+ *   parse (I/O pool) -> split (1 thread) -> embed (CPU-sized pool) -> persist (1 batching writer)
+ * </pre>
+ * Parsing is I/O and Tika bound, so it runs on its own pool of {@code parseConcurrency} threads.
+ * Embedding is CPU bound and gets one thread per core. A single writer groups chunks from many
+ * files into {@code persistBatchSize} inserts. The bounded queues apply back-pressure, so a slow
+ * stage stalls the ones before it instead of buffering the whole corpus.
+ * <p>
+ * A failure in one file is logged and counted, and the pipeline moves on to the next file.
+ * {@link #cancel()} stops taking new files; files already past parsing are dropped at the next
+ * stage boundary, and batches already handed to the writer are still committed.
+ */
+class IngestionPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    /**
+     * The work done by each stage; a {@code null} or empty result drops the file.
+     */
+    interface Stages {
+        ParsedFile parse(Path path);
+
+        List<TextSegment> split(ParsedFile file);
+
+        List<Document> embed(SourceFile file, List<TextSegment> segments);
+
+        /**
+         * Writes a batch; every file in it arrives with all of its chunks.
+         */
+        void persist(List<EmbeddedFile> files);
+    }
+
+    /**
+     * What is known about a file on disk when it was read; {@code contentHash} may be null.
+     */
+    record SourceFile(Path path, String fileName, long size, long lastModified, String contentHash) {
+    }
+
+    record ParsedFile(SourceFile source, dev.langchain4j.data.document.Document document) {
+        String fileName() {
+            return source.fileName();
+        }
+    }
+
+    record EmbeddedFile(SourceFile source, List<Document> chunks) {
+    }
+
+    private record SplitFile(SourceFile source, List<TextSegment> segments) {
+    }
+
+    // Queue end-of-stream markers
+    private static final ParsedFile END_OF_PARSED = new ParsedFile(null, null);
+    private static final SplitFile END_OF_SPLIT = new SplitFile(null, List.of());
+    private static final EmbeddedFile END_OF_CHUNKS = new EmbeddedFile(null, List.of());
+
+    private final Stages stages;
+    private final int parseConcurrency;
+    private final int embedThreads;
+    private final int persistBatchSize;
+
+    private final BlockingQueue<ParsedFile> parsedQueue;
+    private final BlockingQueue<SplitFile> splitQueue;
+    private final BlockingQueue<EmbeddedFile> chunkQueue;
+
+    private final StageStats parseStats = new StageStats();
+    private final StageStats splitStats = new StageStats();
+    private final StageStats embedStats = new StageStats();
+    private final StageStats persistStats = new StageStats();
+    private final AtomicInteger filesCompleted = new AtomicInteger();
+    private final AtomicLong chunksPersisted = new AtomicLong();
+
+    private volatile boolean cancelled;
+    private volatile int totalFiles;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    IngestionPipeline(Stages stages, int parseConcurrency, int embedThreads, int persistBatchSize, int queueCapacity) {
+        this.stages = stages;
+        this.parseConcurrency = Math.max(parseConcurrency, 1);
+        this.embedThreads = Math.max(embedThreads, 1);
+        this.persistBatchSize = Math.max(persistBatchSize, 1);
+        this.parsedQueue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        this.splitQueue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        this.chunkQueue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+    }
+
+    /**
+     * Pushes every file through the pipeline and returns once the last batch is persisted.
+     */
+    void run(List<Path> files) throws InterruptedException {
+        totalFiles = files.size();
+        startNanos = System.nanoTime();
+
+        Thread splitter = new Thread(this::splitLoop, "rag-ingest-split");
+        Thread writer = new Thread(this::persistLoop, "rag-ingest-persist");
+        splitter.start();
+        writer.start();
+        AtomicInteger activeEmbedders = new AtomicInteger(embedThreads);
+        ExecutorService embedders = Executors.newFixedThreadPool(embedThreads, namedThreads("rag-ingest-embed-"));
+        for (int i = 0; i < embedThreads; i++) {
+            embedders.execute(() -> embedLoop(activeEmbedders));
+        }
+
+        boolean completed = false;
+        try {
+            Semaphore inFlight = new Semaphore(parseConcurrency);
+            ExecutorService parsers = Executors.newFixedThreadPool(parseConcurrency, namedThreads("rag-ingest-parse-"));
+            try {
+                for (Path file : files) {
+                    if (cancelled) {
+                        break;
+                    }
+                    inFlight.acquire();
+                    parsers.execute(() -> {
+                        try {
+                            parseOne(file);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                parsers.shutdown();
+                // Wait for the submitted parses
+                parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } finally {
+                parsers.shutdownNow();
+            }
+            parsedQueue.put(END_OF_PARSED);
+
+            splitter.join();
+            writer.join();
+            completed = true;
+        } finally {
+            if (!completed) {
+                splitter.interrupt();
+                writer.interrupt();
+            }
+            embedders.shutdownNow();
+            endNanos = System.nanoTime();
+        }
+    }
+
+    private void parseOne(Path file) {
+        if (cancelled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedFile parsed = stages.parse(file);
+            parseStats.record(start);
+            if (parsed != null) {
+                parsedQueue.put(parsed);
+            } else {
+                filesCompleted.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            parseStats.fail();
+            filesCompleted.incrementAndGet();
+            logger.error("Failed to parse file: {}", file, e);
+        }
+    }
+
+    private void splitLoop() {
+        try {
+            for (ParsedFile parsed = parsedQueue.take(); parsed != END_OF_PARSED; parsed = parsedQueue.take()) {
+                if (cancelled) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    List<TextSegment> segments = stages.split(parsed);
+                    splitStats.record(start);
+                    if (segments != null && !segments.isEmpty()) {
+                        splitQueue.put(new SplitFile(parsed.source(), segments));
+                    } else {
+                        filesCompleted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    splitStats.fail();
+                    filesCompleted.incrementAndGet();
+                    logger.error("Failed to split file: {}", parsed.fileName(), e);
+                }
+            }
+            for (int i = 0; i < embedThreads; i++) {
+                splitQueue.put(END_OF_SPLIT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void embedLoop(AtomicInteger activeEmbedders) {
+        try {
+            for (SplitFile file = splitQueue.take(); file != END_OF_SPLIT; file = splitQueue.take()) {
+                if (cancelled) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    List<Document> chunks = stages.embed(file.source(), file.segments());
+                    embedStats.record(start);
+                    if (!chunks.isEmpty()) {
+                        chunkQueue.put(new EmbeddedFile(file.source(), chunks));
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    embedStats.fail();
+                    logger.error("Failed to embed file: {}", file.source().fileName(), e);
+                }
+                logger.info("Progress: {}/{} files processed", filesCompleted.incrementAndGet(), totalFiles);
+            }
+            // The last embedder out closes the writer's queue
+            if (activeEmbedders.decrementAndGet() == 0) {
+                chunkQueue.put(END_OF_CHUNKS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Files are never split across batches, so a batch may run past persistBatchSize chunks
+    private void persistLoop() {
+        List<EmbeddedFile> batch = new ArrayList<>();
+        int batchChunks = 0;
+        try {
+            while (true) {
+                // Flush a partial batch when the upstream stages go quiet
+                EmbeddedFile file = chunkQueue.poll(1, TimeUnit.SECONDS);
+                if (file == END_OF_CHUNKS) {
+                    break;
+                }
+                if (file != null) {
+                    batch.add(file);
+                    batchChunks += file.chunks().size();
+                }
+                if (batchChunks >= persistBatchSize || (file == null && !batch.isEmpty())) {
+                    flush(batch, batchChunks);
+                    batchChunks = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(batch, batchChunks);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<EmbeddedFile> batch, int batchChunks) {
+        long start = System.nanoTime();
+        try {
+            stages.persist(new ArrayList<>(batch));
+            persistStats.record(start);
+            chunksPersisted.addAndGet(batchChunks);
+        } catch (Exception e) {
+            persistStats.fail();
+            logger.error("Failed to persist batch of {} files ({} chunks)", batch.size(), batchChunks, e);
+        }
+        batch.clear();
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    int totalFiles() {
+        return totalFiles;
+    }
+
+    int filesCompleted() {
+        return filesCompleted.get();
+    }
+
+    long chunksPersisted() {
+        return chunksPersisted.get();
+    }
+
+    double elapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1e9;
+    }
+
+    /**
+     * Per-stage throughput and busy time, plus current queue depths.
+     */
+    Map<String, Object> getStats() {
+        double elapsedSeconds = elapsedSeconds();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", startNanos != 0 && endNanos == 0);
+        stats.put("cancelled", cancelled);
+        stats.put("totalFiles", totalFiles);
+        stats.put("filesCompleted", filesCompleted.get());
+        stats.put("chunksPersisted", chunksPersisted.get());
+        stats.put("elapsedSeconds", elapsedSeconds);
+
+        Map<String, Object> stageStats = new LinkedHashMap<>();
+        stageStats.put("parse", parseStats.snapshot(elapsedSeconds));
+        stageStats.put("split", splitStats.snapshot(elapsedSeconds));
+        stageStats.put("embed", embedStats.snapshot(elapsedSeconds));
+        stageStats.put("persist", persistStats.snapshot(elapsedSeconds));
+        stats.put("stages", stageStats);
+
+        Map<String, Object> queueDepths = new LinkedHashMap<>();
+        queueDepths.put("parsed", parsedQueue.size());
+        queueDepths.put("split", splitQueue.size());
+        queueDepths.put("chunks", chunkQueue.size());
+        stats.put("queueDepths", queueDepths);
+        return stats;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class StageStats {
+        final AtomicLong items = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+
+        void record(long startNanos) {
+            items.incrementAndGet();
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        void fail() {
+            failures.incrementAndGet();
+        }
+
+        Map<String, Object> snapshot(double elapsedSeconds) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("items", items.get());
+            snapshot.put("failures", failures.get());
+            snapshot.put("itemsPerSecond", elapsedSeconds > 0 ? items.get() / elapsedSeconds : 0.0);
+            snapshot.put("busySeconds", busyNanos.get() / 1e9);
+            return snapshot;
+        }
+    }
+}
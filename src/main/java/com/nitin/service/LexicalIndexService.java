@@ -0,0 +1,93 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+import com.nitin.index.Bm25Index;
+import com.nitin.index.SearchHit;
+import com.nitin.repository.ContentView;
+import com.nitin.repository.DocumentRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Maintains the BM25 inverted index over chunk content that backs the lexical half of hybrid
+ * retrieval. It follows the vector index through {@link ChunksIndexedEvent} and
+ * {@link ChunksRemovedEvent}.
+ */
+@Service
+public class LexicalIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(LexicalIndexService.class);
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Value("${rag.retrieval.hybrid.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    private final Bm25Index bm25Index = new Bm25Index();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long lastId = 0;
+        while (true) {
+            List<ContentView> batch = documentRepository.findContentAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (ContentView row : batch) {
+                bm25Index.add(row.getId(), row.getContent());
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        logger.info("Lexical index loaded with {} chunks in {}ms", bm25Index.size(), System.currentTimeMillis() - startTime);
+    }
+
+    @EventListener
+    public void onChunksIndexed(ChunksIndexedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (Document chunk : event.chunks()) {
+            if (chunk.getId() != null && chunk.getContent() != null) {
+                bm25Index.add(chunk.getId(), chunk.getContent());
+            }
+        }
+    }
+
+    @EventListener
+    public void onChunksRemoved(ChunksRemovedEvent event) {
+        if (event.allChunks()) {
+            bm25Index.clear();
+        } else {
+            bm25Index.remove(event.chunkIds());
+        }
+    }
+
+    public List<SearchHit> search(String query, int limit) {
+        return enabled ? bm25Index.search(query, limit) : List.of();
+    }
+
+    public int size() {
+        return bm25Index.size();
+    }
+}
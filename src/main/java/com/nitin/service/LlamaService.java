@@ -1,18 +1,32 @@
 package com.nitin.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 @Service
 public class LlamaService {
@@ -32,6 +46,9 @@ public class LlamaService {
 
     private final RestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     public LlamaService(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
@@ -48,7 +65,7 @@ public class LlamaService {
             String fullPrompt = buildPrompt(prompt, context);
             logger.debug("Full prompt length: {}", fullPrompt.length());
 
-            Map<String, Object> requestBody = buildRequestBody(fullPrompt);
+            Map<String, Object> requestBody = buildRequestBody(fullPrompt, false);
             HttpEntity<Map<String, Object>> request = createHttpEntity(requestBody);
             long startTime = System.currentTimeMillis();
             ResponseEntity<Map> response = restTemplate.postForEntity(
@@ -74,6 +91,90 @@ public class LlamaService {
         }
     }
 
+    /**
+     * Streams a completion ({@code "stream": true}), passing each token to {@code onToken} as
+     * llama.cpp emits it, and returns the cleaned full text. Reading stops when
+     * {@code cancelled} turns true or {@code onToken} throws; the connection is then closed,
+     * which makes llama.cpp abort the generation and free its slot.
+     */
+    public String streamResponse(String prompt, String context, Consumer<String> onToken, BooleanSupplier cancelled) {
+        String fullPrompt = buildPrompt(prompt, context);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildRequestBody(fullPrompt, true), headers);
+
+        long startTime = System.currentTimeMillis();
+        try {
+            String content = restTemplate.execute(llamaServerUrl + "/completion", HttpMethod.POST,
+                    restTemplate.httpEntityCallback(request),
+                    response -> readStream(response, onToken, cancelled, startTime));
+            logger.info("LLM stream finished in {}ms", System.currentTimeMillis() - startTime);
+            return cleanResponse(content == null ? "" : content.trim());
+        } catch (ResourceAccessException e) {
+            logger.error("Failed to connect to llama.cpp server at {}: {}", llamaServerUrl, e.getMessage());
+            throw new RuntimeException("Cannot connect to llama.cpp server. Please ensure it's running.", e);
+        } catch (HttpClientErrorException e) {
+            logger.error("Client error calling llama.cpp server: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+            throw new RuntimeException("Invalid request to llama.cpp server: " + e.getMessage(), e);
+        } catch (HttpServerErrorException e) {
+            logger.error("Server error from llama.cpp: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+            throw new RuntimeException("llama.cpp server error: " + e.getMessage(), e);
+        }
+    }
+
+    // Each event is a "data: {json}" line; the last one has "stop": true
+    private String readStream(ClientHttpResponse response, Consumer<String> onToken, BooleanSupplier cancelled,
+                              long startTime) throws IOException {
+        StringBuilder content = new StringBuilder();
+        InputStream body = response.getBody();
+        boolean finished = false;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            String line;
+            while (!finished && !cancelled.getAsBoolean() && (line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                JsonNode chunk = objectMapper.readTree(line.substring("data:".length()).trim());
+                if (chunk.has("error")) {
+                    throw new IllegalStateException("llama.cpp stream error: " + chunk.get("error"));
+                }
+                String token = chunk.path("content").asText("");
+                if (!token.isEmpty()) {
+                    if (content.isEmpty()) {
+                        logger.info("First LLM token after {}ms", System.currentTimeMillis() - startTime);
+                    }
+                    content.append(token);
+                    onToken.accept(token);
+                }
+                finished = chunk.path("stop").asBoolean(false);
+            }
+        } finally {
+            if (!finished) {
+                // Closing mid-stream drops the connection instead of reading the rest of the generation
+                logger.info("LLM stream abandoned after {} characters", content.length());
+                body.close();
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * Number of parallel generation slots the server was started with ({@code --parallel}), from
+     * {@code /props}; null when the server cannot be reached or does not report it.
+     */
+    public Integer fetchTotalSlots() {
+        try {
+            ResponseEntity<Map> response = restTemplate.getForEntity(llamaServerUrl + "/props", Map.class);
+            Object slots = response.getBody() != null ? response.getBody().get("total_slots") : null;
+            return slots instanceof Number number ? number.intValue() : null;
+        } catch (Exception e) {
+            logger.warn("Could not read slot count from llama.cpp server: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private boolean isServerHealthy() {
         try {
             ResponseEntity<String> response = restTemplate.getForEntity(llamaServerUrl + "/health", String.class);
@@ -84,7 +185,7 @@ public class LlamaService {
         }
     }
 
-    private Map<String, Object> buildRequestBody(String fullPrompt) {
+    private Map<String, Object> buildRequestBody(String fullPrompt, boolean stream) {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("prompt", fullPrompt);
         requestBody.put("n_predict", maxTokens);
@@ -93,7 +194,7 @@ public class LlamaService {
         requestBody.put("top_p", 0.9);
         requestBody.put("repeat_penalty", 1.1);
         requestBody.put("stop", Arrays.asList("\n\n", "Human:", "Context:", "Question:"));
-        requestBody.put("stream", false);
+        requestBody.put("stream", stream);
 
         return requestBody;
     }
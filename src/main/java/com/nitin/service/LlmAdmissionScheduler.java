@@ -0,0 +1,251 @@
+package com.nitin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits LLM generations up to the number of llama.cpp slots, so requests run in parallel
+ * where the server can and queue here, boundedly, where it cannot.
+ * <p>
+ * The slot count is {@code llama.slots}, or when that is 0 the {@code total_slots} reported by
+ * the server's {@code /props} at startup. Waiters are served {@link Priority#INTERACTIVE} first,
+ * then {@link Priority#BATCH}, each in arrival order; a freed slot is handed straight to the next
+ * waiter. A request is rejected at once when {@code queue-capacity} requests are already waiting,
+ * and gives up after {@code timeout-ms}.
+ */
+@Service
+public class LlmAdmissionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(LlmAdmissionScheduler.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        BATCH
+    }
+
+    /**
+     * Thrown when a generation cannot be admitted: the wait queue is full or the wait timed out.
+     */
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A held slot; closing it admits the next waiter.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @Value("${llama.slots:0}")
+    private int configuredSlots;
+
+    @Value("${llama.admission.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${llama.admission.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Autowired
+    private LlamaService llamaService;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition granted = lock.newCondition();
+    private final Map<Priority, Deque<Waiter>> waiters = new EnumMap<>(Priority.class);
+    private final Map<Priority, PriorityStats> stats = new EnumMap<>(Priority.class);
+    private int totalSlots = 1;
+    private int available = 1;
+    private int waiting;
+
+    private static final class Waiter {
+        boolean admitted;
+    }
+
+    private static final class PriorityStats {
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong timedOut = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+    }
+
+    public LlmAdmissionScheduler() {
+        for (Priority priority : Priority.values()) {
+            waiters.put(priority, new ArrayDeque<>());
+            stats.put(priority, new PriorityStats());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void configureSlots() {
+        int slots = configuredSlots;
+        if (slots <= 0) {
+            Integer discovered = llamaService.fetchTotalSlots();
+            slots = discovered != null && discovered > 0 ? discovered : 1;
+            logger.info("LLM admission: {} slots ({})", slots, discovered != null ? "reported by llama.cpp" : "server not reachable, default");
+        } else {
+            logger.info("LLM admission: {} slots (configured)", slots);
+        }
+        setTotalSlots(slots);
+    }
+
+    /**
+     * Waits for a slot. Throws {@link RejectedException} when the queue is full or the wait
+     * exceeds the timeout.
+     */
+    public Permit acquire(Priority priority) throws InterruptedException {
+        PriorityStats priorityStats = stats.get(priority);
+        long startedAt = System.nanoTime();
+        lock.lock();
+        try {
+            if (available > 0 && waiting == 0) {
+                available--;
+                return admit(priorityStats, startedAt);
+            }
+            if (waiting >= queueCapacity) {
+                priorityStats.rejected.incrementAndGet();
+                throw new RejectedException("The LLM is busy (" + waiting + " requests waiting), please retry shortly");
+            }
+
+            Waiter waiter = new Waiter();
+            waiters.get(priority).addLast(waiter);
+            waiting++;
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            try {
+                while (!waiter.admitted) {
+                    if (remaining <= 0) {
+                        waiters.get(priority).remove(waiter);
+                        waiting--;
+                        priorityStats.timedOut.incrementAndGet();
+                        throw new RejectedException("Timed out after " + timeoutMs + "ms waiting for the LLM, please retry");
+                    }
+                    remaining = granted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.admitted) {
+                    // The slot was handed over just as we were interrupted; pass it on
+                    releaseLocked();
+                } else {
+                    waiters.get(priority).remove(waiter);
+                    waiting--;
+                }
+                throw e;
+            }
+            return admit(priorityStats, startedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when a new request would be rejected right away, so callers can answer 429 before
+     * doing any work.
+     */
+    public boolean isSaturated() {
+        lock.lock();
+        try {
+            return waiting >= queueCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            result.put("slots", totalSlots);
+            result.put("inUse", totalSlots - available);
+            result.put("queued", waiting);
+        } finally {
+            lock.unlock();
+        }
+        result.put("queueCapacity", queueCapacity);
+        for (Priority priority : Priority.values()) {
+            PriorityStats priorityStats = stats.get(priority);
+            long admitted = priorityStats.admitted.get();
+            Map<String, Object> priorityResult = new LinkedHashMap<>();
+            priorityResult.put("admitted", admitted);
+            priorityResult.put("rejected", priorityStats.rejected.get());
+            priorityResult.put("timedOut", priorityStats.timedOut.get());
+            priorityResult.put("avgWaitMs", admitted > 0 ? priorityStats.waitNanos.get() / 1e6 / admitted : 0.0);
+            priorityResult.put("maxWaitMs", priorityStats.maxWaitNanos.get() / 1e6);
+            result.put(priority.name().toLowerCase(), priorityResult);
+        }
+        return result;
+    }
+
+    void setTotalSlots(int slots) {
+        lock.lock();
+        try {
+            available += slots - totalSlots;
+            totalSlots = slots;
+            // Newly added slots go to whoever is already waiting
+            while (available > 0 && waiting > 0) {
+                available--;
+                handOver();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admit(PriorityStats priorityStats, long startedAt) {
+        long waited = System.nanoTime() - startedAt;
+        priorityStats.admitted.incrementAndGet();
+        priorityStats.waitNanos.addAndGet(waited);
+        priorityStats.maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        boolean[] released = new boolean[1];
+        return () -> {
+            lock.lock();
+            try {
+                if (!released[0]) {
+                    released[0] = true;
+                    releaseLocked();
+                }
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    private void releaseLocked() {
+        // After the slot count shrank, released slots are retired before anyone is admitted
+        if (available >= 0 && waiting > 0) {
+            handOver();
+        } else {
+            available++;
+        }
+    }
+
+    // Caller holds the lock and has a slot to give
+    private void handOver() {
+        for (Priority priority : Priority.values()) {
+            Waiter next = waiters.get(priority).pollFirst();
+            if (next != null) {
+                waiting--;
+                next.admitted = true;
+                granted.signalAll();
+                return;
+            }
+        }
+    }
+}
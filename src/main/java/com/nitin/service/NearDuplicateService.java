@@ -0,0 +1,165 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+import com.nitin.index.NearDuplicateIndex;
+import com.nitin.index.SimHash;
+import com.nitin.repository.ContentView;
+import com.nitin.repository.DocumentBulkWriter;
+import com.nitin.repository.DocumentRepository;
+import com.nitin.repository.FingerprintView;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds chunks at ingest whose text is a near copy of a chunk already stored from another file,
+ * using SimHash fingerprints in an LSH band table.
+ * <p>
+ * Such a segment is stored as a linked row (content and {@code duplicate_of}, no embedding) and
+ * never enters the vector or lexical index, so copies and revisions of a document cost neither
+ * embedding time, index memory nor context slots. The table follows committed chunks through
+ * {@link ChunksIndexedEvent} and {@link ChunksRemovedEvent}.
+ */
+@Service
+public class NearDuplicateService {
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateService.class);
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Value("${rag.ingest.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.ingest.dedup.max-distance:3}")
+    private int maxDistance;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentBulkWriter documentBulkWriter;
+
+    private NearDuplicateIndex nearDuplicateIndex;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong linked = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        nearDuplicateIndex = new NearDuplicateIndex(maxDistance);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        backfillFingerprints();
+        long lastId = 0;
+        while (true) {
+            List<FingerprintView> batch = documentRepository.findFingerprintsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (FingerprintView row : batch) {
+                nearDuplicateIndex.add(row.getId(), row.getFingerprint(), owner(row.getSourcePath(), row.getFileName()));
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        logger.info("Near-duplicate table loaded with {} fingerprints in {}ms",
+                nearDuplicateIndex.size(), System.currentTimeMillis() - startTime);
+    }
+
+    public static long fingerprint(String text) {
+        return SimHash.fingerprint(text);
+    }
+
+    /**
+     * Identifies the file a chunk belongs to, so a file is never matched against its own chunks.
+     */
+    public static int owner(String sourcePath, String fileName) {
+        return String.valueOf(sourcePath != null ? sourcePath : fileName).hashCode();
+    }
+
+    /**
+     * Id of a stored chunk from another file that this fingerprint nearly matches, or null.
+     */
+    public Long findDuplicate(long fingerprint, int owner) {
+        if (!enabled) {
+            return null;
+        }
+        lookups.incrementAndGet();
+        long id = nearDuplicateIndex.findNearDuplicate(fingerprint, owner);
+        if (id < 0) {
+            return null;
+        }
+        linked.incrementAndGet();
+        return id;
+    }
+
+    @EventListener
+    public void onChunksIndexed(ChunksIndexedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (Document chunk : event.chunks()) {
+            if (chunk.getId() != null && chunk.getFingerprint() != null && chunk.getDuplicateOf() == null) {
+                nearDuplicateIndex.add(chunk.getId(), chunk.getFingerprint(), owner(chunk.getSourcePath(), chunk.getFileName()));
+            }
+        }
+    }
+
+    @EventListener
+    public void onChunksRemoved(ChunksRemovedEvent event) {
+        if (event.allChunks()) {
+            nearDuplicateIndex.clear();
+        } else {
+            nearDuplicateIndex.remove(event.chunkIds());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxDistance", maxDistance);
+        stats.put("fingerprints", nearDuplicateIndex.size());
+        stats.put("lookups", lookups.get());
+        stats.put("linked", linked.get());
+        return stats;
+    }
+
+    // Chunks stored before fingerprints existed get one computed from their content
+    private void backfillFingerprints() {
+        long lastId = 0;
+        long updated = 0;
+        while (true) {
+            List<ContentView> batch = documentRepository.findUnfingerprintedContentAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, Long> fingerprints = new LinkedHashMap<>();
+            for (ContentView row : batch) {
+                fingerprints.put(row.getId(), fingerprint(row.getContent()));
+            }
+            documentBulkWriter.updateFingerprints(fingerprints);
+            updated += fingerprints.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        if (updated > 0) {
+            logger.info("Computed fingerprints for {} existing chunks", updated);
+        }
+    }
+}
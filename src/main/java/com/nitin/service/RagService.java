@@ -1,5 +1,7 @@
 package com.nitin.service;
 
+import com.nitin.dto.BatchQueryResult;
+import com.nitin.dto.SourceChunk;
 import com.nitin.entity.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,8 +10,8 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,14 +20,30 @@ public class RagService {
     private static final Logger logger = LoggerFactory.getLogger(RagService.class);
     private static final int DEFAULT_SIMILARITY_LIMIT = 3;
     private static final int MAX_CONTEXT_LENGTH = 4000; // Adjust based on your LLM's context window
-    //Only 1 Llama operation at a time
-    private final Semaphore llamaSemaphore = new Semaphore(1);
     @Autowired
     private DocumentService documentService;
 
+    // Bounds concurrent generations to the llama.cpp slots; retrieval runs outside it
+    @Autowired
+    private LlmAdmissionScheduler admissionScheduler;
+
     @Autowired
     private LlamaService llamaService;
 
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    /**
+     * Receives a streamed answer as it is produced; {@link #isCancelled()} is polled between tokens.
+     */
+    public interface AnswerStream {
+        void sources(List<SourceChunk> sources);
+
+        void token(String token);
+
+        boolean isCancelled();
+    }
+
     public String query(String question) {
         return query(question, DEFAULT_SIMILARITY_LIMIT);
     }
@@ -41,8 +59,22 @@ public class RagService {
 
         long startTime = System.currentTimeMillis();
 
+        // Paraphrases of an already answered question skip retrieval and generation entirely
+        float[] questionEmbedding = null;
+        if (semanticAnswerCache.isEnabled()) {
+            try {
+                questionEmbedding = documentService.embedQuery(question);
+                String cachedAnswer = semanticAnswerCache.lookup(questionEmbedding);
+                if (cachedAnswer != null) {
+                    logger.info("Answered from semantic answer cache in {}ms", System.currentTimeMillis() - startTime);
+                    return cachedAnswer;
+                }
+            } catch (Exception e) {
+                logger.warn("Semantic answer cache lookup failed: {}", e.getMessage());
+            }
+        }
+
         try {
-            llamaSemaphore.acquire();
             // Retrieve relevant documents
             List<Document> relevantDocs = documentService.findSimilarDocuments(question, similarityLimit);
 
@@ -52,28 +84,152 @@ public class RagService {
             } else {
                 logger.info("Found {} relevant documents for query : {}", relevantDocs.size(), question);
             }
-            // Build context from retrieved documents
-            String context = buildOptimizedContext(relevantDocs);
-
-            logger.info("Built context with {} characters", context.length());
-            if (logger.isDebugEnabled()) {
-                logger.debug("Context preview: {}", context.substring(0, Math.min(200, context.length())));
+            String response;
+            try (LlmAdmissionScheduler.Permit permit = admissionScheduler.acquire(LlmAdmissionScheduler.Priority.INTERACTIVE)) {
+                response = generateAnswer(question, relevantDocs);
             }
-
-            // Generate response using llama.cpp
-            String response = llamaService.generateResponse(question.trim(), context);
             long processingTime = System.currentTimeMillis() - startTime;
 
+            if (questionEmbedding != null) {
+                semanticAnswerCache.put(questionEmbedding, relevantDocs.stream().map(Document::getId).toList(), response);
+            }
+
             logger.info("RAG query processed in {}ms", processingTime);
             return response;
+        } catch (LlmAdmissionScheduler.RejectedException e) {
+            logger.warn("Query not admitted: {}", e.getMessage());
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for the LLM: {}", question);
+            return "I encountered an error while processing your question. Please try again.";
         } catch (Exception e) {
             logger.error("Error processing query: {}", question, e);
             return "I encountered an error while processing your question. Please try again.";
-        } finally {
-            llamaSemaphore.release();
         }
     }
 
+    public String streamQuery(String question, AnswerStream stream) throws InterruptedException {
+        return streamQuery(question, DEFAULT_SIMILARITY_LIMIT, stream);
+    }
+
+    /**
+     * Answers a question token by token. Retrieval and the semantic answer cache work as in
+     * {@link #query(String, int)}; a cached answer arrives as a single token. Returns the full
+     * answer, or null if the stream was cancelled before the answer was complete.
+     */
+    public String streamQuery(String question, int similarityLimit, AnswerStream stream) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        float[] questionEmbedding = null;
+        if (semanticAnswerCache.isEnabled()) {
+            questionEmbedding = documentService.embedQuery(question);
+            String cachedAnswer = semanticAnswerCache.lookup(questionEmbedding);
+            if (cachedAnswer != null) {
+                logger.info("Streamed answer from semantic answer cache in {}ms", System.currentTimeMillis() - startTime);
+                stream.token(cachedAnswer);
+                return cachedAnswer;
+            }
+        }
+
+        List<Document> relevantDocs = documentService.findSimilarDocuments(question, similarityLimit);
+        stream.sources(toSources(relevantDocs));
+        String context = buildOptimizedContext(relevantDocs);
+
+        String answer;
+        try (LlmAdmissionScheduler.Permit permit = admissionScheduler.acquire(LlmAdmissionScheduler.Priority.INTERACTIVE)) {
+            // The client may have left while the request was queued
+            if (stream.isCancelled()) {
+                return null;
+            }
+            answer = llamaService.streamResponse(question.trim(), context, stream::token, stream::isCancelled);
+        }
+        if (stream.isCancelled()) {
+            logger.info("Streamed query cancelled by the client after {}ms", System.currentTimeMillis() - startTime);
+            return null;
+        }
+        if (questionEmbedding != null) {
+            semanticAnswerCache.put(questionEmbedding, relevantDocs.stream().map(Document::getId).toList(), answer);
+        }
+        logger.info("Streamed RAG query processed in {}ms", System.currentTimeMillis() - startTime);
+        return answer;
+    }
+
+    /**
+     * Answers a batch of questions. Retrieval for the whole batch is one embedding call and one
+     * pass over the vector index; answers are then generated one at a time at batch priority,
+     * reusing the semantic answer cache. With {@code generateAnswers} false only the sources are
+     * returned.
+     */
+    public List<BatchQueryResult> queryBatch(List<String> questions, int similarityLimit, boolean generateAnswers) {
+        long startTime = System.currentTimeMillis();
+        List<BatchQueryResult> results = new ArrayList<>(questions.size());
+        List<String> validQuestions = questions.stream()
+                .filter(question -> question != null && !question.trim().isEmpty())
+                .toList();
+
+        List<float[]> embeddings = documentService.embedQueries(validQuestions);
+        List<List<Document>> relevantDocs = documentService.findSimilarDocuments(validQuestions, embeddings, similarityLimit);
+        logger.info("Retrieved sources for {} questions in {}ms", validQuestions.size(), System.currentTimeMillis() - startTime);
+
+        int next = 0;
+        for (String question : questions) {
+            if (question == null || question.trim().isEmpty()) {
+                results.add(new BatchQueryResult(question, List.of(), "Please provide a valid question."));
+                continue;
+            }
+            float[] questionEmbedding = embeddings.get(next);
+            List<Document> docs = relevantDocs.get(next++);
+            List<SourceChunk> sources = toSources(docs);
+            String answer = generateAnswers ? answerFromSources(question, questionEmbedding, docs) : null;
+            results.add(new BatchQueryResult(question, sources, answer));
+        }
+
+        logger.info("Batch of {} questions processed in {}ms", questions.size(), System.currentTimeMillis() - startTime);
+        return results;
+    }
+
+    private String answerFromSources(String question, float[] questionEmbedding, List<Document> relevantDocs) {
+        if (semanticAnswerCache.isEnabled()) {
+            String cachedAnswer = semanticAnswerCache.lookup(questionEmbedding);
+            if (cachedAnswer != null) {
+                return cachedAnswer;
+            }
+        }
+        try (LlmAdmissionScheduler.Permit permit = admissionScheduler.acquire(LlmAdmissionScheduler.Priority.BATCH)) {
+            String response = generateAnswer(question, relevantDocs);
+            semanticAnswerCache.put(questionEmbedding, relevantDocs.stream().map(Document::getId).toList(), response);
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the LLM", e);
+        } catch (LlmAdmissionScheduler.RejectedException e) {
+            logger.warn("Batch question not admitted: {}", e.getMessage());
+            return e.getMessage();
+        } catch (Exception e) {
+            logger.error("Error answering batch question: {}", question, e);
+            return "I encountered an error while processing your question. Please try again.";
+        }
+    }
+
+    private static List<SourceChunk> toSources(List<Document> docs) {
+        return docs.stream()
+                .map(doc -> new SourceChunk(doc.getId(), doc.getFileName(), doc.getChunkIndex()))
+                .toList();
+    }
+
+    private String generateAnswer(String question, List<Document> relevantDocs) {
+        // Build context from retrieved documents
+        String context = buildOptimizedContext(relevantDocs);
+
+        logger.info("Built context with {} characters", context.length());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Context preview: {}", context.substring(0, Math.min(200, context.length())));
+        }
+
+        // Generate response using llama.cpp
+        return llamaService.generateResponse(question.trim(), context);
+    }
+
     /**
      * Build optimized context by managing content length and removing duplicates
      */
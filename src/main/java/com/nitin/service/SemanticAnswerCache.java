@@ -0,0 +1,207 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+import com.nitin.index.EmbeddingCodec;
+import com.nitin.index.FlatVectorIndex;
+import com.nitin.index.SearchHit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches generated answers by question embedding, so a paraphrase of an answered question
+ * (cosine similarity at or above the configured threshold) is served without calling the LLM.
+ * <p>
+ * Each entry remembers the chunk ids its answer was built from and is dropped as soon as any
+ * of those chunks is removed or the index is cleared. Newly indexed chunks drop every entry
+ * whose question they match at {@code invalidate-similarity} or above, since that answer was
+ * generated without context that retrieval would now return.
+ */
+@Component
+public class SemanticAnswerCache {
+    private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    @Value("${rag.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.answer-cache.similarity-threshold:0.95}")
+    private float similarityThreshold;
+
+    @Value("${rag.answer-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${rag.answer-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${rag.answer-cache.invalidate-similarity:0.5}")
+    private float invalidateSimilarity;
+
+    private final FlatVectorIndex questionIndex = new FlatVectorIndex();
+    // Insertion ordered, so the eldest entry is evicted first once the cache is full
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, Set<Long>> entriesByChunk = new HashMap<>();
+    private final AtomicLong nextEntryId = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached answer of the most similar earlier question, or null.
+     */
+    public String lookup(float[] questionEmbedding) {
+        if (!enabled) {
+            return null;
+        }
+
+        List<SearchHit> nearest = questionIndex.search(questionEmbedding, 1);
+        if (!nearest.isEmpty() && nearest.get(0).score() >= similarityThreshold) {
+            synchronized (this) {
+                Entry entry = entries.get(nearest.get(0).id());
+                if (entry != null && !isExpired(entry)) {
+                    hits.incrementAndGet();
+                    logger.debug("Semantic answer cache hit (similarity {})", nearest.get(0).score());
+                    return entry.answer;
+                }
+                if (entry != null) {
+                    removeEntry(nearest.get(0).id());
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(float[] questionEmbedding, List<Long> chunkIds, String answer) {
+        if (!enabled || chunkIds.isEmpty()) {
+            return;
+        }
+
+        long entryId = nextEntryId.incrementAndGet();
+        synchronized (this) {
+            while (entries.size() >= maxEntries && !entries.isEmpty()) {
+                removeEntry(entries.keySet().iterator().next());
+            }
+            entries.put(entryId, new Entry(List.copyOf(chunkIds), answer, System.currentTimeMillis()));
+            for (Long chunkId : chunkIds) {
+                entriesByChunk.computeIfAbsent(chunkId, id -> new HashSet<>()).add(entryId);
+            }
+            questionIndex.add(entryId, questionEmbedding);
+        }
+    }
+
+    @EventListener
+    public void onChunksRemoved(ChunksRemovedEvent event) {
+        if (event.allChunks()) {
+            clear();
+            return;
+        }
+
+        int invalidated = 0;
+        synchronized (this) {
+            for (Long chunkId : event.chunkIds()) {
+                Set<Long> affected = entriesByChunk.get(chunkId);
+                if (affected == null) {
+                    continue;
+                }
+                for (Long entryId : new ArrayList<>(affected)) {
+                    removeEntry(entryId);
+                    invalidated++;
+                }
+            }
+        }
+        if (invalidated > 0) {
+            logger.info("Invalidated {} cached answers built from removed chunks", invalidated);
+        }
+    }
+
+    @EventListener
+    public void onChunksIndexed(ChunksIndexedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        float[][] chunkVectors = event.chunks().stream()
+                .map(Document::getEmbedding)
+                .filter(embedding -> embedding != null && embedding.length > 0)
+                .map(EmbeddingCodec::deserialize)
+                .toArray(float[][]::new);
+        if (chunkVectors.length == 0) {
+            return;
+        }
+
+        Set<Long> stale = new HashSet<>();
+        synchronized (this) {
+            if (entries.isEmpty()) {
+                return;
+            }
+            // One pass over the cached questions for the whole batch of new chunks
+            for (List<SearchHit> hits : questionIndex.searchBatch(chunkVectors, entries.size())) {
+                for (SearchHit hit : hits) {
+                    if (hit.score() < invalidateSimilarity) {
+                        break;
+                    }
+                    stale.add(hit.id());
+                }
+            }
+            stale.forEach(this::removeEntry);
+        }
+        if (!stale.isEmpty()) {
+            logger.info("Invalidated {} cached answers that newly indexed chunks are relevant to", stale.size());
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        entriesByChunk.clear();
+        questionIndex.clear();
+        logger.debug("Semantic answer cache cleared");
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("similarityThreshold", similarityThreshold);
+        return stats;
+    }
+
+    private void removeEntry(Long entryId) {
+        Entry entry = entries.remove(entryId);
+        if (entry == null) {
+            return;
+        }
+        for (Long chunkId : entry.chunkIds) {
+            Set<Long> dependents = entriesByChunk.get(chunkId);
+            if (dependents != null) {
+                dependents.remove(entryId);
+                if (dependents.isEmpty()) {
+                    entriesByChunk.remove(chunkId);
+                }
+            }
+        }
+        questionIndex.remove(List.of(entryId));
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt > ttlMinutes * 60_000;
+    }
+
+    private record Entry(List<Long> chunkIds, String answer, long createdAt) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.nitin.service;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentBySentenceSplitter;
+import dev.langchain4j.data.document.splitter.DocumentByWordSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental counterpart of {@code DocumentSplitters.recursive(maxSegmentSize, overlap)} for text
+ * that arrives in pieces (a Tika content handler), producing the same segments for the same text.
+ * <p>
+ * The paragraph and line levels of the recursive splitter are replayed as the text streams in:
+ * parts are packed greedily into a segment, and a paragraph that cannot fit is streamed line by
+ * line into the level below. Only a line too long for one segment is buffered whole and handed to
+ * the library's sentence splitter, so memory is bounded by the longest line, not the document.
+ */
+final class StreamingSegmenter {
+
+    // Same separators as DocumentByParagraphSplitter and DocumentByLineSplitter
+    private static final Pattern PARAGRAPH_SEPARATOR = Pattern.compile("\\s*(?>\\R)\\s*(?>\\R)\\s*");
+    private static final Pattern LINE_SEPARATOR = Pattern.compile("\\s*\\R\\s*");
+    // Characters a separator match can contain (\s and \R)
+    private static final String SEPARATOR_CHARS = " \t\n\u000B\f\r\u0085\u2028\u2029";
+
+    private final int maxSegmentSize;
+    private final int overlap;
+    private final Consumer<String> sink;
+    private final DocumentSplitter sentenceSplitter;
+    private final DocumentBySentenceSplitter overlapSentenceSplitter;
+    private final Level paragraphs;
+
+    private String lastSegment = "";
+    private int segmentCount;
+
+    StreamingSegmenter(int maxSegmentSize, int overlap, Consumer<String> sink) {
+        this.maxSegmentSize = maxSegmentSize;
+        this.overlap = overlap;
+        this.sink = sink;
+        this.sentenceSplitter = new DocumentBySentenceSplitter(maxSegmentSize, overlap,
+                new DocumentByWordSplitter(maxSegmentSize, overlap));
+        this.overlapSentenceSplitter = new DocumentBySentenceSplitter(1, 0);
+        this.paragraphs = new Level(PARAGRAPH_SEPARATOR, "\n\n", new Level(LINE_SEPARATOR, "\n", null));
+    }
+
+    void append(char[] text, int start, int length) {
+        paragraphs.append(CharBuffer.wrap(text, start, length));
+    }
+
+    void append(CharSequence text) {
+        paragraphs.append(text);
+    }
+
+    /**
+     * Emits whatever text is left; call once the input has ended.
+     */
+    void finish() {
+        paragraphs.finish();
+    }
+
+    int segmentCount() {
+        return segmentCount;
+    }
+
+    private void emit(String text) {
+        if (text.isBlank()) {
+            return;
+        }
+        lastSegment = text;
+        sink.accept(text);
+        segmentCount++;
+    }
+
+    /**
+     * One level of HierarchicalDocumentSplitter.split, fed its text incrementally. {@code segment}
+     * is the library's SegmentBuilder content and {@code lastOverlap} its {@code overlap} variable.
+     */
+    private final class Level {
+        private final Pattern separator;
+        private final String delimiter;
+        // Oversized parts are streamed here when set, otherwise buffered and split by sentences
+        private final Level below;
+        // Unresolved text: the current part plus a trailing run that may still become a separator
+        private final StringBuilder pending = new StringBuilder();
+
+        private int scanFrom;
+        private String segment = "";
+        private String lastOverlap;
+        private boolean streamingBelow;
+        // A lower level splits SegmentBuilder.toString(), which is trimmed at both ends
+        private boolean trimmed;
+        private boolean atStart = true;
+
+        Level(Pattern separator, String delimiter, Level below) {
+            this.separator = separator;
+            this.delimiter = delimiter;
+            this.below = below;
+        }
+
+        void append(CharSequence text) {
+            int from = 0;
+            if (trimmed && atStart) {
+                while (from < text.length() && text.charAt(from) <= ' ') {
+                    from++;
+                }
+                if (from == text.length()) {
+                    return;
+                }
+                atStart = false;
+            }
+            pending.append(text, from, text.length());
+            drain();
+        }
+
+        void finish() {
+            int end = pending.length();
+            Matcher matcher = separator.matcher(pending);
+            if (matcher.find(scanFrom)) {
+                // A trailing separator; String.split drops the empty part after it
+                end = matcher.start();
+            }
+            if (trimmed) {
+                while (end > 0 && pending.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+            }
+            if (streamingBelow) {
+                below.append(pending.subSequence(0, end));
+                finishBelow();
+            } else {
+                acceptPart(pending.substring(0, end));
+            }
+            pending.setLength(0);
+            scanFrom = 0;
+            if (!segment.isEmpty() && !segment.trim().equals(lastOverlap)) {
+                emit(segment.trim());
+            }
+        }
+
+        private void drain() {
+            Matcher matcher = separator.matcher(pending);
+            int partStart = 0;
+            // A match that reaches the end of the text so far may still grow, so it is not final yet
+            while (matcher.find(scanFrom) && matcher.end() < pending.length()) {
+                if (streamingBelow) {
+                    below.append(pending.subSequence(partStart, matcher.start()));
+                    finishBelow();
+                } else {
+                    acceptPart(pending.substring(partStart, matcher.start()));
+                }
+                partStart = matcher.end();
+                scanFrom = partStart;
+            }
+
+            int runStart = pending.length();
+            while (runStart > partStart && SEPARATOR_CHARS.indexOf(pending.charAt(runStart - 1)) >= 0) {
+                runStart--;
+            }
+            if (!streamingBelow && below != null && runStart - partStart > maxSegmentSize) {
+                // The part cannot fit whatever follows: start it on the level below now
+                makeRoomFor(maxSegmentSize + 1);
+                beginBelow();
+            }
+            if (streamingBelow) {
+                below.append(pending.subSequence(partStart, runStart));
+                partStart = runStart;
+            }
+            pending.delete(0, partStart);
+            scanFrom = runStart - partStart;
+        }
+
+        private void acceptPart(String part) {
+            if (hasSpaceFor(part.length()) || makeRoomFor(part.length())) {
+                appendToSegment(part);
+            } else if (below != null) {
+                beginBelow();
+                below.append(part);
+                finishBelow();
+            } else {
+                appendToSegment(part);
+                for (TextSegment split : sentenceSplitter.split(Document.from(segment.trim()))) {
+                    emit(split.text());
+                }
+                lastOverlap = overlapFrom(lastSegment);
+                segment = lastOverlap;
+            }
+        }
+
+        // Emits the current segment and restarts from its overlap; true if the part fits then
+        private boolean makeRoomFor(int size) {
+            if (segment.isEmpty() || segment.trim().equals(lastOverlap)) {
+                return false;
+            }
+            emit(segment.trim());
+            lastOverlap = overlapFrom(segment.trim());
+            segment = lastOverlap;
+            return hasSpaceFor(size);
+        }
+
+        private boolean hasSpaceFor(int size) {
+            int total = segment.isEmpty() ? size : segment.length() + delimiter.length() + size;
+            return total <= maxSegmentSize;
+        }
+
+        private void appendToSegment(String part) {
+            segment = segment.isEmpty() ? part : segment + delimiter + part;
+        }
+
+        // The level below splits what is in the segment so far followed by the oversized part
+        private void beginBelow() {
+            below.reset();
+            if (!segment.isEmpty()) {
+                below.append(segment + delimiter);
+            }
+            streamingBelow = true;
+        }
+
+        private void finishBelow() {
+            below.finish();
+            streamingBelow = false;
+            lastOverlap = overlapFrom(lastSegment);
+            segment = lastOverlap;
+        }
+
+        private void reset() {
+            pending.setLength(0);
+            scanFrom = 0;
+            segment = "";
+            lastOverlap = null;
+            streamingBelow = false;
+            trimmed = true;
+            atStart = true;
+        }
+
+        // The trailing sentences of the text that fit in the overlap, joined by this level's delimiter
+        private String overlapFrom(String text) {
+            if (overlap == 0) {
+                return "";
+            }
+            String[] sentences = overlapSentenceSplitter.split(text);
+            String result = "";
+            for (int i = sentences.length - 1; i >= 0; i--) {
+                int size = result.isEmpty()
+                        ? sentences[i].length()
+                        : sentences[i].length() + delimiter.length() + result.length();
+                if (size > overlap) {
+                    break;
+                }
+                result = result.isEmpty() ? sentences[i] : sentences[i] + delimiter + result;
+            }
+            return result.trim();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nitin.service;
+
+import com.nitin.entity.Document;
+import com.nitin.index.EmbeddingCodec;
+import com.nitin.index.MappedVectorStore;
+import com.nitin.index.SearchHit;
+import com.nitin.index.VectorIndex;
+import com.nitin.repository.DocumentRepository;
+import com.nitin.repository.EmbeddingView;
+import com.nitin.repository.IdSummaryView;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Keeps the resident vector index in step with the {@code documents} table.
+ * <p>
+ * The index is loaded once when the application starts and afterwards only receives the
+ * chunks that are saved or deleted, so similarity queries never scan the database.
+ */
+@Service
+public class VectorIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexService.class);
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private VectorIndex vectorIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        // A persistent index that holds exactly the table's ids only needs its files mapped
+        int indexed = vectorIndex.size();
+        if (indexed > 0 && vectorIndex instanceof MappedVectorStore store) {
+            IdSummaryView embedded = documentRepository.summarizeEmbeddedIds();
+            long[] checksums = store.idChecksums();
+            if (indexed == embedded.getCount() && checksums[0] == embedded.getMaxId()
+                    && checksums[1] == embedded.getIdSum() && checksums[2] == embedded.getIdSquareSum()) {
+                logger.info("Vector index already holds all {} embeddings, skipping rebuild", indexed);
+                return;
+            }
+            logger.warn("Vector index holds {} embeddings that do not match the {} in the database, rebuilding",
+                    indexed, embedded.getCount());
+        }
+        rebuild();
+    }
+
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        vectorIndex.clear();
+
+        long lastId = 0;
+        while (true) {
+            List<EmbeddingView> batch = documentRepository.findEmbeddingsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (EmbeddingView row : batch) {
+                addToIndex(row.getId(), row.getEmbedding());
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        logger.info("Vector index loaded with {} embeddings in {}ms",
+                vectorIndex.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Adds saved chunks to the index once the surrounding transaction commits, so a rollback
+     * never leaves ids in the index that are not in the database. Linked near-duplicates are
+     * skipped.
+     */
+    public void indexAfterCommit(List<Document> documents) {
+        List<Document> saved = documents.stream().filter(doc -> doc.getDuplicateOf() == null).toList();
+        runAfterCommit(() -> {
+            addToIndex(saved);
+            eventPublisher.publishEvent(new ChunksIndexedEvent(saved));
+        });
+    }
+
+    public void removeAfterCommit(Collection<Long> documentIds) {
+        List<Long> removed = new ArrayList<>(documentIds);
+        runAfterCommit(() -> {
+            vectorIndex.remove(removed);
+            eventPublisher.publishEvent(ChunksRemovedEvent.of(new HashSet<>(removed)));
+        });
+    }
+
+    public void clear() {
+        vectorIndex.clear();
+        eventPublisher.publishEvent(ChunksRemovedEvent.all());
+    }
+
+    public List<SearchHit> search(float[] queryVector, int limit) {
+        return vectorIndex.search(queryVector, limit);
+    }
+
+    public List<List<SearchHit>> searchBatch(float[][] queryVectors, int limit) {
+        return vectorIndex.searchBatch(queryVectors, limit);
+    }
+
+    public int size() {
+        return vectorIndex.size();
+    }
+
+    private void addToIndex(List<Document> documents) {
+        for (Document doc : documents) {
+            addToIndex(doc.getId(), doc.getEmbedding());
+        }
+    }
+
+    private void addToIndex(Long documentId, byte[] embedding) {
+        if (documentId == null || embedding == null || embedding.length == 0) {
+            return;
+        }
+        try {
+            vectorIndex.add(documentId, EmbeddingCodec.deserialize(embedding));
+        } catch (Exception e) {
+            logger.error("Failed to index embedding for document {}", documentId, e);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
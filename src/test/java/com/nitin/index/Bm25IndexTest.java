@@ -0,0 +1,60 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTest {
+
+    @Test
+    void ranksExactTermMatchesFirst() {
+        Bm25Index index = new Bm25Index();
+        index.add(1, "The pump stopped with error code E-4711 after the firmware update.");
+        index.add(2, "Firmware updates are installed from the maintenance menu.");
+        index.add(3, "Error codes are listed in the appendix.");
+
+        List<SearchHit> hits = index.search("error E-4711", 3);
+
+        assertThat(hits).extracting(SearchHit::id).startsWith(1L);
+        assertThat(hits).extracting(SearchHit::id).doesNotContain(2L);
+        assertThat(hits).extracting(SearchHit::score).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+    }
+
+    @Test
+    void removedAndReplacedDocumentsDropOutOfResults() {
+        Bm25Index index = new Bm25Index();
+        index.add(1, "valve calibration procedure");
+        index.add(2, "valve replacement procedure");
+        index.remove(List.of(1L));
+        index.add(2, "motor replacement procedure");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("valve", 5)).isEmpty();
+        assertThat(index.search("motor", 5)).extracting(SearchHit::id).containsExactly(2L);
+    }
+
+    @Test
+    void compactionAfterManyRemovalsKeepsScoresForLiveDocuments() {
+        Bm25Index index = new Bm25Index();
+        List<Long> removed = new ArrayList<>();
+        for (long id = 0; id < 100; id++) {
+            index.add(id, "shared term document" + id + (id % 10 == 0 ? " rare" : ""));
+            if (id % 4 != 0) {
+                removed.add(id);
+            }
+        }
+        List<SearchHit> before = index.search("rare", 10);
+
+        // Removing most documents turns the tombstones into the majority and rewrites the postings
+        index.remove(removed);
+
+        assertThat(index.size()).isEqualTo(25);
+        assertThat(index.search("rare", 10)).extracting(SearchHit::id)
+                .containsExactlyInAnyOrderElementsOf(before.stream().map(SearchHit::id).filter(id -> id % 4 == 0).toList());
+        assertThat(index.search("document40", 5)).extracting(SearchHit::id).containsExactly(40L);
+        assertThat(index.search("document41", 5)).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int K = 10;
+
+    @Test
+    void recallAgainstExactSearchIsHigh() {
+        Random random = new Random(1);
+        HnswVectorIndex hnsw = new HnswVectorIndex(16, 100, 64);
+        FlatVectorIndex exact = new FlatVectorIndex();
+        for (long id = 0; id < 2000; id++) {
+            float[] vector = randomVector(random);
+            hnsw.add(id, vector);
+            exact.add(id, vector);
+        }
+
+        assertThat(recall(hnsw, exact, random)).isGreaterThan(0.9);
+        float[] query = randomVector(random);
+        assertThat(hnsw.search(query, K)).extracting(SearchHit::score).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+    }
+
+    @Test
+    void returnsKLiveHitsAroundTombstones() {
+        Random random = new Random(2);
+        HnswVectorIndex hnsw = new HnswVectorIndex(16, 100, 64);
+        for (long id = 0; id < 1000; id++) {
+            hnsw.add(id, randomVector(random));
+        }
+        // Below the compaction trigger, so the removed nodes stay in the graph as tombstones
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < 1000; id += 3) {
+            removed.add(id);
+        }
+        hnsw.remove(removed);
+
+        assertThat(hnsw.size()).isEqualTo(1000 - removed.size());
+        for (int i = 0; i < 50; i++) {
+            List<SearchHit> hits = hnsw.search(randomVector(random), K);
+            assertThat(hits).hasSize(K);
+            assertThat(hits).extracting(SearchHit::id).doesNotContainAnyElementsOf(removed);
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveVectorsSearchable() {
+        Random random = new Random(3);
+        HnswVectorIndex hnsw = new HnswVectorIndex(16, 100, 64);
+        FlatVectorIndex exact = new FlatVectorIndex();
+        for (long id = 0; id < 1500; id++) {
+            float[] vector = randomVector(random);
+            hnsw.add(id, vector);
+            exact.add(id, vector);
+        }
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < 1500; id += 2) {
+            removed.add(id);
+        }
+        hnsw.remove(removed);
+        exact.remove(removed);
+        hnsw.compact();
+
+        assertThat(hnsw.size()).isEqualTo(exact.size());
+        assertThat(recall(hnsw, exact, random)).isGreaterThan(0.9);
+        assertThat(hnsw.search(randomVector(random), K)).extracting(SearchHit::id).doesNotContainAnyElementsOf(removed);
+    }
+
+    static double recall(VectorIndex approximate, VectorIndex exact, Random random) {
+        int found = 0;
+        int queries = 100;
+        for (int i = 0; i < queries; i++) {
+            float[] query = randomVector(random);
+            Set<Long> expected = exact.search(query, K).stream().map(SearchHit::id).collect(Collectors.toSet());
+            found += (int) approximate.search(query, K).stream().filter(hit -> expected.contains(hit.id())).count();
+        }
+        return (double) found / (queries * K);
+    }
+
+    static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,67 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.nitin.index.HnswVectorIndexTest.randomVector;
+import static com.nitin.index.HnswVectorIndexTest.recall;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IvfVectorIndexTest {
+
+    @Test
+    void probingEveryClusterMatchesExactSearch() {
+        Random random = new Random(1);
+        IvfVectorIndex ivf = new IvfVectorIndex(16, 16, 0f, 100, 2.0);
+        FlatVectorIndex exact = filled(ivf, random, 2000);
+        ivf.train();
+
+        assertThat(recall(ivf, exact, random)).isEqualTo(1.0);
+    }
+
+    @Test
+    void partialProbingKeepsReasonableRecall() {
+        Random random = new Random(2);
+        IvfVectorIndex ivf = new IvfVectorIndex(16, 6, 0f, 100, 2.0);
+        FlatVectorIndex exact = filled(ivf, random, 2000);
+        ivf.train();
+
+        assertThat(recall(ivf, exact, random)).isGreaterThan(0.6);
+    }
+
+    @Test
+    void thresholdNeverShortensTheResult() {
+        Random random = new Random(3);
+        // No random vector gets near this threshold, so it can only end the probing early, never filter
+        IvfVectorIndex ivf = new IvfVectorIndex(16, 4, 0.99f, 100, 2.0);
+        filled(ivf, random, 1000);
+        ivf.train();
+
+        for (int i = 0; i < 20; i++) {
+            List<SearchHit> hits = ivf.search(randomVector(random), 10);
+            assertThat(hits).hasSize(10);
+            assertThat(hits).extracting(SearchHit::score).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+        }
+    }
+
+    @Test
+    void searchesLikeAFlatScanBeforeTraining() {
+        Random random = new Random(4);
+        IvfVectorIndex ivf = new IvfVectorIndex(16, 1, 0f, 10_000, 2.0);
+        FlatVectorIndex exact = filled(ivf, random, 500);
+
+        assertThat(recall(ivf, exact, random)).isEqualTo(1.0);
+    }
+
+    private static FlatVectorIndex filled(IvfVectorIndex ivf, Random random, int count) {
+        FlatVectorIndex exact = new FlatVectorIndex();
+        for (long id = 0; id < count; id++) {
+            float[] vector = randomVector(random);
+            ivf.add(id, vector);
+            exact.add(id, vector);
+        }
+        return exact;
+    }
+}
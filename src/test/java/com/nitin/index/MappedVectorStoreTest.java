@@ -0,0 +1,109 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static com.nitin.index.HnswVectorIndexTest.randomVector;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void searchesLikeAFlatIndexAndAfterReopening() throws IOException {
+        Random random = new Random(1);
+        FlatVectorIndex exact = new FlatVectorIndex();
+        List<float[]> queries = new ArrayList<>();
+        List<List<SearchHit>> before = new ArrayList<>();
+        try (MappedVectorStore store = new MappedVectorStore(directory, 256)) {
+            for (long id = 1; id <= 1000; id++) {
+                float[] vector = randomVector(random);
+                store.add(id, vector);
+                exact.add(id, vector);
+            }
+            for (int i = 0; i < 20; i++) {
+                float[] query = randomVector(random);
+                queries.add(query);
+                before.add(store.search(query, 10));
+                assertThat(ids(before.get(i))).isEqualTo(ids(exact.search(query, 10)));
+            }
+        }
+
+        try (MappedVectorStore reopened = new MappedVectorStore(directory, 256)) {
+            assertThat(reopened.size()).isEqualTo(1000);
+            for (int i = 0; i < queries.size(); i++) {
+                assertThat(reopened.search(queries.get(i), 10)).isEqualTo(before.get(i));
+            }
+        }
+    }
+
+    @Test
+    void compactsSegmentsThatAreMostlyTombstones() throws IOException {
+        Random random = new Random(2);
+        try (MappedVectorStore store = new MappedVectorStore(directory, 500)) {
+            for (long id = 1; id <= 500; id++) {
+                store.add(id, randomVector(random));
+            }
+            long sizeBefore = totalSize();
+            List<Long> removed = new ArrayList<>();
+            for (long id = 1; id <= 400; id++) {
+                removed.add(id);
+            }
+            store.remove(removed);
+
+            assertThat(store.size()).isEqualTo(100);
+            assertThat(totalSize()).isLessThan(sizeBefore);
+            assertThat(store.search(randomVector(random), 100))
+                    .hasSize(100)
+                    .allSatisfy(hit -> assertThat(hit.id()).isGreaterThan(400L));
+        }
+        try (MappedVectorStore reopened = new MappedVectorStore(directory, 500)) {
+            assertThat(reopened.size()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void idChecksumsAreExactModularSums() throws IOException {
+        long[] ids = {3L, 1L << 40, Long.MAX_VALUE - 5, Long.MAX_VALUE, 987_654_321_012L};
+        try (MappedVectorStore store = new MappedVectorStore(directory, 16)) {
+            Random random = new Random(3);
+            for (long id : ids) {
+                store.add(id, randomVector(random));
+            }
+
+            BigInteger modulus = BigInteger.valueOf(MappedVectorStore.CHECKSUM_MODULUS);
+            BigInteger squareBase = BigInteger.valueOf(MappedVectorStore.CHECKSUM_SQUARE_BASE);
+            BigInteger sum = BigInteger.ZERO;
+            BigInteger squareSum = BigInteger.ZERO;
+            for (long id : ids) {
+                BigInteger value = BigInteger.valueOf(id);
+                sum = sum.add(value);
+                squareSum = squareSum.add(value.mod(squareBase).pow(2));
+            }
+
+            assertThat(store.idChecksums()).containsExactly(
+                    Long.MAX_VALUE, sum.mod(modulus).longValueExact(), squareSum.mod(modulus).longValueExact());
+        }
+    }
+
+    private long totalSize() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::id).toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.nitin.index.HnswVectorIndexTest.randomVector;
+import static com.nitin.index.HnswVectorIndexTest.recall;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuantizedVectorIndexTest {
+
+    @Test
+    void int8WithHalfPrecisionRerankMatchesExactSearch() {
+        Random random = new Random(1);
+        QuantizedVectorIndex quantized = new QuantizedVectorIndex(QuantizedVectorIndex.Quantization.INT8, 50);
+        FlatVectorIndex exact = new FlatVectorIndex();
+        for (long id = 0; id < 2000; id++) {
+            float[] vector = randomVector(random);
+            quantized.add(id, vector);
+            exact.add(id, vector);
+        }
+
+        assertThat(recall(quantized, exact, random)).isGreaterThan(0.95);
+    }
+
+    @Test
+    void halfPrecisionEncodingRoundsToNearestEven() {
+        assertThat(QuantizedVectorIndex.toHalf(0f)).isEqualTo((short) 0x0000);
+        assertThat(QuantizedVectorIndex.toHalf(1f)).isEqualTo((short) 0x3c00);
+        assertThat(QuantizedVectorIndex.toHalf(-2f)).isEqualTo((short) 0xc000);
+        assertThat(QuantizedVectorIndex.toHalf(65504f)).isEqualTo((short) 0x7bff);
+        assertThat(QuantizedVectorIndex.toHalf(1e6f)).isEqualTo((short) 0x7c00);
+        // Smallest subnormal, and exactly half of it, which ties to even (zero)
+        assertThat(QuantizedVectorIndex.toHalf(0x1.0p-24f)).isEqualTo((short) 0x0001);
+        assertThat(QuantizedVectorIndex.toHalf(0x1.0p-25f)).isEqualTo((short) 0x0000);
+        // 1 + 2^-11 lies halfway between 1 and the next half, and rounds down to the even one
+        assertThat(QuantizedVectorIndex.toHalf(1f + 0x1.0p-11f)).isEqualTo((short) 0x3c00);
+        assertThat(QuantizedVectorIndex.toHalf(1f + 0x1.8p-10f)).isEqualTo((short) 0x3c02);
+    }
+}
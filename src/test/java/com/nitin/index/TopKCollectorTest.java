@@ -0,0 +1,65 @@
+package com.nitin.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKCollectorTest {
+
+    @Test
+    void keepsTheHighestScoresInDescendingOrder() {
+        TopKCollector topK = new TopKCollector(5);
+        Random random = new Random(1);
+        float[] scores = new float[1000];
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = random.nextFloat();
+            topK.offer(id, scores[id]);
+        }
+
+        List<SearchHit> hits = topK.toHits();
+
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        assertThat(hits).hasSize(5);
+        for (int i = 0; i < hits.size(); i++) {
+            assertThat(hits.get(i).score()).isEqualTo(sorted[sorted.length - 1 - i]);
+            assertThat(scores[(int) hits.get(i).id()]).isEqualTo(hits.get(i).score());
+        }
+    }
+
+    @Test
+    void thresholdIsTheWorstKeptScoreOnceFull() {
+        TopKCollector topK = new TopKCollector(3);
+        assertThat(topK.offer(1, 0.5f)).isTrue();
+        assertThat(topK.offer(2, 0.9f)).isTrue();
+        assertThat(topK.isFull()).isFalse();
+        assertThat(topK.offer(3, 0.1f)).isTrue();
+        assertThat(topK.isFull()).isTrue();
+        assertThat(topK.threshold()).isEqualTo(0.1f);
+
+        assertThat(topK.offer(4, 0.05f)).isFalse();
+        assertThat(topK.offer(5, 0.7f)).isTrue();
+        assertThat(topK.threshold()).isEqualTo(0.5f);
+        assertThat(topK.toHits()).extracting(SearchHit::id).containsExactly(2L, 5L, 1L);
+    }
+
+    @Test
+    void resetEmptiesAndResizes() {
+        TopKCollector topK = TopKCollector.forCurrentThread(2);
+        topK.offer(1, 1f);
+        topK.offer(2, 2f);
+        topK.sortDescending();
+
+        topK.reset(4);
+        for (int id = 0; id < 10; id++) {
+            topK.offer(id, id);
+        }
+
+        assertThat(topK.size()).isEqualTo(4);
+        assertThat(topK.toHits()).extracting(SearchHit::id).containsExactly(9L, 8L, 7L, 6L);
+    }
+}
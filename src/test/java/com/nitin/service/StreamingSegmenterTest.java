@@ -0,0 +1,121 @@
+package com.nitin.service;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingSegmenterTest {
+
+    private static final String[] WORDS = {
+            "retrieval", "vector", "index", "segment", "token", "model", "cluster", "query", "embedding", "h2"};
+    private static final String[] PARAGRAPH_BREAKS = {"\n\n", "\n\n\n", " \n \n ", "\r\n\r\n", "\n\t\n"};
+
+    @Test
+    void matchesRecursiveSplitterOnMultiParagraphText() {
+        int[][] settings = {{500, 0}, {500, 50}, {200, 20}, {300, 100}, {100, 0}};
+        for (int[] setting : settings) {
+            for (int seed = 0; seed < 50; seed++) {
+                Random random = new Random(seed);
+                String text = document(random, setting[0]);
+                assertThat(stream(text, setting[0], setting[1], random))
+                        .as("max %d, overlap %d, seed %d", setting[0], setting[1], seed)
+                        .isEqualTo(recursive(text, setting[0], setting[1]));
+            }
+        }
+    }
+
+    @Test
+    void matchesRecursiveSplitterWhenParagraphsAndLinesExceedTheSegmentSize() {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder(paragraph(random, 150, 1));
+        text.append("\n\n").append(paragraph(random, 1200, 6));
+        text.append("\n\n").append(line(random, 900));
+        text.append("\n\n").append(paragraph(random, 80, 1));
+
+        assertThat(stream(text.toString(), 300, 60, random)).isEqualTo(recursive(text.toString(), 300, 60));
+    }
+
+    @Test
+    void emitsNothingForBlankText() {
+        List<String> segments = new ArrayList<>();
+        StreamingSegmenter segmenter = new StreamingSegmenter(500, 50, segments::add);
+        segmenter.append(" \n\n\t \n");
+        segmenter.finish();
+
+        assertThat(segments).isEmpty();
+        assertThat(segmenter.segmentCount()).isZero();
+    }
+
+    // Feeds the text in random-sized pieces, the way a Tika content handler delivers it
+    private static List<String> stream(String text, int maxSegmentSize, int overlap, Random random) {
+        List<String> segments = new ArrayList<>();
+        StreamingSegmenter segmenter = new StreamingSegmenter(maxSegmentSize, overlap, segments::add);
+        int position = 0;
+        while (position < text.length()) {
+            int end = Math.min(text.length(), position + 1 + random.nextInt(random.nextBoolean() ? 8 : 200));
+            segmenter.append(text.toCharArray(), position, end - position);
+            position = end;
+        }
+        segmenter.finish();
+        assertThat(segmenter.segmentCount()).isEqualTo(segments.size());
+        return segments;
+    }
+
+    private static List<String> recursive(String text, int maxSegmentSize, int overlap) {
+        return DocumentSplitters.recursive(maxSegmentSize, overlap).split(Document.from(text)).stream()
+                .map(TextSegment::text)
+                .toList();
+    }
+
+    // Paragraphs well below, around and above the segment size, some of them several lines long
+    private static String document(Random random, int maxSegmentSize) {
+        StringBuilder text = new StringBuilder();
+        int paragraphs = 2 + random.nextInt(10);
+        for (int i = 0; i < paragraphs; i++) {
+            if (i > 0) {
+                text.append(PARAGRAPH_BREAKS[random.nextInt(PARAGRAPH_BREAKS.length)]);
+            }
+            int length = switch (random.nextInt(3)) {
+                case 0 -> 10 + random.nextInt(maxSegmentSize / 2);
+                case 1 -> maxSegmentSize / 2 + random.nextInt(maxSegmentSize);
+                default -> maxSegmentSize + random.nextInt(3 * maxSegmentSize);
+            };
+            text.append(paragraph(random, length, random.nextInt(3) == 0 ? 2 + random.nextInt(6) : 1));
+        }
+        return text.toString();
+    }
+
+    private static String paragraph(Random random, int length, int lines) {
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                paragraph.append('\n');
+            }
+            paragraph.append(line(random, Math.max(length / lines, 1)));
+        }
+        return paragraph.toString();
+    }
+
+    private static String line(Random random, int length) {
+        StringBuilder line = new StringBuilder();
+        while (line.length() < length) {
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            int words = 3 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                line.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+            }
+            line.append(random.nextInt(4) == 0 ? '?' : '.');
+        }
+        return line.toString();
+    }
+}